@@ -8,4 +8,13 @@ public class Constants {
     /** Known values for 'eauth' parameter when logging in */
     public static final String LOGIN_EAUTH_AUTO = "auto";
     public static final String LOGIN_EAUTH_PAM = "pam";
+
+    /** Known values for the 'client' parameter of lowstate data */
+    public static final String CLIENT_LOCAL = "local";
+    public static final String CLIENT_LOCAL_ASYNC = "local_async";
+    public static final String CLIENT_LOCAL_BATCH = "local_batch";
+    public static final String CLIENT_RUNNER = "runner";
+    public static final String CLIENT_RUNNER_ASYNC = "runner_async";
+    public static final String CLIENT_WHEEL = "wheel";
+    public static final String CLIENT_WHEEL_ASYNC = "wheel_async";
 }
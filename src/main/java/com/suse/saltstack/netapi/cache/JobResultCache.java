@@ -0,0 +1,354 @@
+package com.suse.saltstack.netapi.cache;
+
+import com.suse.saltstack.netapi.parser.CompactMap;
+import com.suse.saltstack.netapi.parser.LazyResultMap;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-process cache of completed job results.
+ * <p>
+ * Once a job has returned from all of its targeted minions its result does not change
+ * anymore, so results are only stored if they contain every expected minion. Entries
+ * expire after a time to live and the least recently used entries are evicted as soon
+ * as the estimated size of all cached results exceeds the configured number of bytes.
+ * <p>
+ * The minions targeted by a job can be registered up front with
+ * {@link #expect(String, Collection)}, they are remembered until its result is stored.
+ */
+public class JobResultCache {
+
+    /** Maximum number of jobs whose targeted minions are remembered */
+    private static final int MAX_EXPECTED = 10000;
+
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f,
+            true);
+    private final LinkedHashMap<String, Collection<String>> expected =
+            new LinkedHashMap<String, Collection<String>>() {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, Collection<String>> eldest) {
+                    return size() > MAX_EXPECTED;
+                }
+            };
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes maximum estimated size in bytes of all cached results
+     * @param ttlMillis time in milliseconds a result stays cached, zero for no expiry
+     */
+    public JobResultCache(long maxBytes, long ttlMillis) {
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the cached result of a job.
+     *
+     * @param jid the job id
+     * @return the result or null if the job is not cached
+     */
+    public synchronized Map<String, Object> get(String jid) {
+        Entry entry = entries.get(jid);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            remove(jid, entry);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    /**
+     * Registers the minions targeted by a job.
+     *
+     * @param jid the job id
+     * @param minions the targeted minions
+     */
+    public synchronized void expect(String jid, Collection<String> minions) {
+        if (jid != null && minions != null && !entries.containsKey(jid)) {
+            expected.put(jid, minions);
+        }
+    }
+
+    /**
+     * Returns the minions targeted by a job as registered with
+     * {@link #expect(String, Collection)}.
+     *
+     * @param jid the job id
+     * @return the targeted minions or null if they are not known
+     */
+    public synchronized Collection<String> getExpectedMinions(String jid) {
+        return expected.get(jid);
+    }
+
+    /**
+     * Stores the result of a job if it contains all of the targeted minions.
+     *
+     * @param jid the job id
+     * @param minions the minions targeted by the job
+     * @param result Map key: minion id, value: command result from that minion
+     * @return true if the result is complete and was stored
+     */
+    public synchronized boolean put(String jid, Collection<String> minions,
+            Map<String, Object> result) {
+        if (jid == null || minions == null || result == null
+                || !result.keySet().containsAll(minions)) {
+            return false;
+        }
+        long size = estimateSize(jid) + estimateSize(result);
+        if (size > maxBytes) {
+            return false;
+        }
+        expected.remove(jid);
+        Entry previous = entries.remove(jid);
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0;
+        entries.put(jid, new Entry(immutableCopy(result), size, expiresAt));
+        bytes += size;
+        evict();
+        return true;
+    }
+
+    /**
+     * Removes a job from the cache.
+     *
+     * @param jid the job id
+     */
+    public synchronized void invalidate(String jid) {
+        expected.remove(jid);
+        Entry entry = entries.get(jid);
+        if (entry != null) {
+            remove(jid, entry);
+        }
+    }
+
+    /**
+     * Removes all jobs from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        expected.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated size in bytes of all cached results
+     */
+    public synchronized long getSizeInBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups not answered from the cache
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results evicted to stay within the size bound
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of results removed because their time to live was over
+     */
+    public synchronized long getExpirationCount() {
+        return expirations;
+    }
+
+    /**
+     * Drops expired entries first, then least recently used ones until the cache fits
+     * into the size bound again.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.isExpired(now)) {
+                it.remove();
+                bytes -= entry.bytes;
+                expirations++;
+            }
+        }
+        it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Entry entry = it.next();
+            it.remove();
+            bytes -= entry.bytes;
+            evictions++;
+        }
+    }
+
+    private void remove(String jid, Entry entry) {
+        entries.remove(jid);
+        bytes -= entry.bytes;
+    }
+
+    /**
+     * Returns a deeply unmodifiable copy of a result, of the same kind as the results
+     * returned by {@link #get(String)}, so that later changes of the caller do not
+     * affect the cached result. Nested maps and lists are copied as well, the
+     * immutable maps of the parsers and results that already are such copies are
+     * returned as is.
+     *
+     * @param result Map key: minion id, value: command result from that minion
+     * @return the unmodifiable result
+     */
+    public static Map<String, Object> immutableCopy(Map<String, Object> result) {
+        if (result instanceof LazyResultMap || result instanceof CompactMap
+                || result instanceof ImmutableResult) {
+            return result;
+        }
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : result.entrySet()) {
+            copy.put(entry.getKey(), immutableValue(entry.getValue()));
+        }
+        return new ImmutableResult(copy);
+    }
+
+    private static Object immutableValue(Object value) {
+        if (value instanceof LazyResultMap || value instanceof CompactMap) {
+            return value;
+        } else if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), immutableValue(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        } else if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                copy.add(immutableValue(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    /**
+     * Roughly estimates the heap size of a parsed result as built by Gson: strings,
+     * boxed primitives, lists and maps.
+     *
+     * @param value the value
+     * @return the estimated size in bytes
+     */
+    static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        } else if (value instanceof LazyResultMap) {
+            // Estimating the decoded size would decode all results
+            return 48 + ((LazyResultMap) value).getBufferSize();
+        } else if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimateSize(e.getKey()) + estimateSize(e.getValue());
+            }
+            return size;
+        } else if (value instanceof List) {
+            long size = 24;
+            for (Object element : (List<?>) value) {
+                size += 8 + estimateSize(element);
+            }
+            return size;
+        } else {
+            return 16;
+        }
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class Entry {
+
+        private final Map<String, Object> result;
+        private final long bytes;
+        private final long expiresAt;
+
+        Entry(Map<String, Object> result, long bytes, long expiresAt) {
+            this.result = result;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt > 0 && now >= expiresAt;
+        }
+    }
+
+    /**
+     * Unmodifiable result as returned by {@link #immutableCopy(Map)}.
+     */
+    private static final class ImmutableResult extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> result;
+
+        ImmutableResult(Map<String, Object> result) {
+            this.result = Collections.unmodifiableMap(result);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return result.entrySet();
+        }
+
+        @Override
+        public Object get(Object key) {
+            return result.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return result.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return result.size();
+        }
+    }
+}
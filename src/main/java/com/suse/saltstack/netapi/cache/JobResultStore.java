@@ -0,0 +1,643 @@
+package com.suse.saltstack.netapi.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+import com.suse.saltstack.netapi.datatypes.Job;
+import com.suse.saltstack.netapi.datatypes.cherrypy.Arguments;
+import com.suse.saltstack.netapi.parser.JsonEngine;
+import com.suse.saltstack.netapi.parser.JsonParser;
+import com.suse.saltstack.netapi.results.Result;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent local store for completed job results and job listings, so they survive
+ * restarts of the application and do not need to be fetched from the API again.
+ * <p>
+ * Records are appended to segment files in a directory. Every record consists of a
+ * header (CRC32 checksum, key length and value length), the key and the value as
+ * JSON. An index of the latest record for every key is kept in memory and rebuilt by
+ * scanning the segments when the store is opened; an incomplete record at the end of
+ * a segment, e.g. after a crash, is truncated. Segments that are not written anymore
+ * are read through memory mappings.
+ * <p>
+ * Once the segments grow beyond the configured total size the store is compacted:
+ * all live records are copied into new segments, the index is switched to them and
+ * the old segments are deleted. The oldest records are dropped during compaction until
+ * the live data takes at most three quarters of the total size.
+ * <p>
+ * Data is flushed to disk on compaction and on {@link #close()}. The directory is
+ * locked while the store is open, it can only be used by one store at a time, also
+ * across processes.
+ */
+public class JobResultStore implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "store.lock";
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+
+    private static final String RESULT_PREFIX = "r:";
+    private static final String JOB_PREFIX = "j:";
+
+    private static final byte[] RESULT_START =
+            "{\"return\": [".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESULT_END = "]}".getBytes(StandardCharsets.UTF_8);
+
+    private static final StoreParser<Job> JOB_PARSER =
+            new StoreParser<>(new TypeToken<Job>(){});
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Arguments.class, new ArgumentsSerializer())
+            .create();
+
+    private final File directory;
+    private final long maxSegmentBytes;
+    private final long maxTotalBytes;
+    private final RandomAccessFile lockFile;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private Segment active;
+    private long totalBytes;
+    private long evictions;
+
+    /**
+     * Opens a store with segments of at most 64 MB and at most 1 GB in total.
+     *
+     * @param directory the directory holding the segment files
+     * @throws IOException if the store cannot be opened
+     */
+    public JobResultStore(File directory) throws IOException {
+        this(directory, 64L << 20, 1L << 30);
+    }
+
+    /**
+     * Opens a store.
+     *
+     * @param directory the directory holding the segment files
+     * @param maxSegmentBytes size in bytes from which a new segment is started
+     * @param maxTotalBytes size in bytes of all segments triggering a compaction
+     * @throws IOException if the store cannot be opened, e.g. because the directory
+     * is used by another store
+     */
+    public JobResultStore(File directory, long maxSegmentBytes, long maxTotalBytes)
+            throws IOException {
+        if (maxSegmentBytes <= 0 || maxSegmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + maxSegmentBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory: " + directory);
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxTotalBytes = maxTotalBytes;
+        this.lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        try {
+            FileLock lock = lockFile.getChannel().tryLock();
+            if (lock == null) {
+                throw new OverlappingFileLockException();
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            lockFile.close();
+            throw new IOException("Directory is used by another store: " + directory);
+        }
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Long id = parseSegmentId(file.getName());
+                if (id != null) {
+                    segments.put(id, new Segment(id, file));
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            recover(segment);
+            totalBytes += segment.size;
+        }
+        active = segments.isEmpty() ? newSegment() : segments.lastEntry().getValue();
+        for (Segment segment : segments.headMap(active.id).values()) {
+            segment.sealed = true;
+        }
+    }
+
+    /**
+     * Returns a stored job result decoded with {@link JsonParser#RETVALS}.
+     *
+     * @param jid the job id
+     * @return Map key: minion id, value: command result from that minion, or null if
+     * the result is not stored
+     * @throws IOException if the store cannot be read
+     */
+    public Map<String, Object> getJobResult(String jid) throws IOException {
+        return getJobResult(jid, JsonParser.RETVALS, null);
+    }
+
+    /**
+     * Returns a stored job result decoded with a given parser of API responses, so it
+     * is of the same kind as a result fetched from the API with that parser.
+     *
+     * @param jid the job id
+     * @param parser the parser for the result
+     * @param engine the engine reading the result, null for the Gson engine
+     * @param <T> the type of the result
+     * @return the result, or null if the result is not stored
+     * @throws IOException if the store cannot be read
+     */
+    public <T> T getJobResult(String jid, JsonParser<Result<List<T>>> parser,
+            JsonEngine engine) throws IOException {
+        byte[] value;
+        synchronized (this) {
+            value = read(RESULT_PREFIX + jid);
+        }
+        if (value == null) {
+            return null;
+        }
+        // Stored results are wrapped like API responses for the parser
+        List<InputStream> parts = Arrays.<InputStream>asList(
+                new ByteArrayInputStream(RESULT_START), new ByteArrayInputStream(value),
+                new ByteArrayInputStream(RESULT_END));
+        InputStream response = new SequenceInputStream(Collections.enumeration(parts));
+        return parser.parse(response, engine).getResult().get(0);
+    }
+
+    /**
+     * Stores a job result. Only results of completed jobs should be stored.
+     *
+     * @param jid the job id
+     * @param result Map key: minion id, value: command result from that minion
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void putJobResult(String jid, Map<String, Object> result)
+            throws IOException {
+        append(RESULT_PREFIX + jid, gson.toJson(result).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a stored job.
+     *
+     * @param jid the job id
+     * @return the job or null if the job is not stored
+     * @throws IOException if the store cannot be read
+     */
+    public synchronized Job getJob(String jid) throws IOException {
+        byte[] value = read(JOB_PREFIX + jid);
+        return value == null ? null : JOB_PARSER.parse(value);
+    }
+
+    /**
+     * Returns all stored jobs.
+     *
+     * @return map containing the stored jobs keyed by job id
+     * @throws IOException if the store cannot be read
+     */
+    public synchronized Map<String, Job> getJobs() throws IOException {
+        Map<String, Job> jobs = new TreeMap<>();
+        for (String key : index.keySet()) {
+            if (key.startsWith(JOB_PREFIX)) {
+                jobs.put(key.substring(JOB_PREFIX.length()),
+                        JOB_PARSER.parse(read(key)));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Stores the jobs of a listing that are not stored yet. The listing of a job does
+     * not change, so jobs that are already stored are not written again.
+     *
+     * @param jobs map containing jobs keyed by job id
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void putJobs(Map<String, Job> jobs) throws IOException {
+        for (Map.Entry<String, Job> job : jobs.entrySet()) {
+            if (index.containsKey(JOB_PREFIX + job.getKey())) {
+                continue;
+            }
+            append(JOB_PREFIX + job.getKey(),
+                    gson.toJson(job.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Removes the result and the listing of a job.
+     *
+     * @param jid the job id
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void remove(String jid) throws IOException {
+        for (String key : new String[] {RESULT_PREFIX + jid, JOB_PREFIX + jid}) {
+            if (index.containsKey(key)) {
+                append(key, null);
+            }
+        }
+    }
+
+    /**
+     * Copies all live records into new segments and deletes the old segments.
+     *
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        compact(maxTotalBytes);
+    }
+
+    /**
+     * @return the number of stored job results and jobs
+     */
+    public synchronized int getRecordCount() {
+        return index.size();
+    }
+
+    /**
+     * @return the size in bytes of all segments
+     */
+    public synchronized long getSizeInBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the number of segments
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return the number of records dropped by compactions to stay within the size
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Flushes all data to disk, closes the segment files and unlocks the directory.
+     *
+     * @throws IOException if flushing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (active != null) {
+                active.channel.force(false);
+            }
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        } finally {
+            segments.clear();
+            index.clear();
+            active = null;
+            // Closing the file releases the lock
+            lockFile.close();
+        }
+    }
+
+    private byte[] read(String key) throws IOException {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        Segment segment = segments.get(location.segment);
+        byte[] value = new byte[location.length - HEADER_SIZE - location.keyLength];
+        segment.read(location.offset + HEADER_SIZE + location.keyLength, value);
+        return value;
+    }
+
+    private void append(String key, byte[] value) throws IOException {
+        if (active == null) {
+            throw new IOException("Store is closed");
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value == null ? 0 : value.length;
+        ByteBuffer record = ByteBuffer.allocate(
+                HEADER_SIZE + keyBytes.length + valueLength);
+        record.position(4);
+        record.putInt(keyBytes.length);
+        record.putInt(value == null ? TOMBSTONE : value.length);
+        record.put(keyBytes);
+        if (value != null) {
+            record.put(value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.capacity() - 4);
+        record.putInt(0, (int) crc.getValue());
+        record.flip();
+
+        if (active.size > 0 && active.size + record.remaining() > maxSegmentBytes) {
+            active.seal();
+            active = newSegment();
+        }
+        long offset = active.append(record);
+        totalBytes += record.capacity();
+        if (value == null) {
+            index.remove(key);
+        } else {
+            index.put(key, new Location(active.id, offset, record.capacity(),
+                    keyBytes.length));
+        }
+        if (totalBytes > maxTotalBytes) {
+            compact(maxTotalBytes / 4 * 3);
+        }
+    }
+
+    /**
+     * Copies the live records into new segments, dropping the oldest records while the
+     * live data is larger than the given number of bytes.
+     */
+    private void compact(long targetBytes) throws IOException {
+        List<Map.Entry<String, Location>> live = new ArrayList<>(index.entrySet());
+        Collections.sort(live, new Comparator<Map.Entry<String, Location>>() {
+            @Override
+            public int compare(Map.Entry<String, Location> a,
+                    Map.Entry<String, Location> b) {
+                Location x = a.getValue();
+                Location y = b.getValue();
+                if (x.segment != y.segment) {
+                    return x.segment < y.segment ? -1 : 1;
+                }
+                return x.offset < y.offset ? -1 : (x.offset == y.offset ? 0 : 1);
+            }
+        });
+        long liveBytes = 0;
+        for (Map.Entry<String, Location> entry : live) {
+            liveBytes += entry.getValue().length;
+        }
+
+        List<Segment> old = new ArrayList<>(segments.values());
+        Map<String, Location> compacted = new LinkedHashMap<>();
+        Segment out = newSegment();
+        for (Map.Entry<String, Location> entry : live) {
+            Location location = entry.getValue();
+            if (liveBytes > targetBytes) {
+                liveBytes -= location.length;
+                evictions++;
+                continue;
+            }
+            byte[] record = new byte[location.length];
+            segments.get(location.segment).read(location.offset, record);
+            if (out.size > 0 && out.size + record.length > maxSegmentBytes) {
+                out.seal();
+                out = newSegment();
+            }
+            long offset = out.append(ByteBuffer.wrap(record));
+            compacted.put(entry.getKey(), new Location(out.id, offset, location.length,
+                    location.keyLength));
+        }
+        for (Segment segment : segments.values()) {
+            segment.channel.force(false);
+        }
+
+        // Switch to the new segments before deleting the old ones, so the index never
+        // points to a deleted segment
+        for (Segment segment : old) {
+            segments.remove(segment.id);
+        }
+        index.clear();
+        index.putAll(compacted);
+        active = out;
+        totalBytes = 0;
+        for (Segment segment : segments.values()) {
+            totalBytes += segment.size;
+        }
+
+        List<File> undeleted = new ArrayList<>();
+        for (Segment segment : old) {
+            segment.close();
+            if (!segment.file.delete()) {
+                undeleted.add(segment.file);
+            }
+        }
+        if (!undeleted.isEmpty()) {
+            throw new IOException("Cannot delete segments: " + undeleted);
+        }
+    }
+
+    /**
+     * Returns the id of a segment file, or null for other files in the directory.
+     */
+    private static Long parseSegmentId(String name) {
+        if (!name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(0,
+                    name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Segment newSegment() throws IOException {
+        long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Segment segment = new Segment(id, new File(directory,
+                String.format("%020d%s", id, SEGMENT_SUFFIX)));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Scans a segment, adds its records to the index and truncates it after the last
+     * valid record.
+     */
+    private void recover(Segment segment) throws IOException {
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (offset + HEADER_SIZE <= segment.size) {
+            header.clear();
+            segment.channel.read(header, offset);
+            int checksum = header.getInt(0);
+            int keyLength = header.getInt(4);
+            int valueLength = header.getInt(8);
+            long length = HEADER_SIZE + (long) keyLength + Math.max(valueLength, 0);
+            if (keyLength < 0 || valueLength < TOMBSTONE
+                    || offset + length > segment.size) {
+                break;
+            }
+            byte[] record = new byte[(int) length];
+            segment.read(offset, record);
+            CRC32 crc = new CRC32();
+            crc.update(record, 4, record.length - 4);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            String key = new String(record, HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+            if (valueLength == TOMBSTONE) {
+                index.remove(key);
+            } else {
+                index.put(key, new Location(segment.id, offset, (int) length, keyLength));
+            }
+            offset += length;
+        }
+        if (offset < segment.size) {
+            segment.truncate(offset);
+        }
+    }
+
+    /**
+     * Position of the latest record of a key.
+     */
+    private static class Location {
+
+        private final long segment;
+        private final long offset;
+        private final int length;
+        private final int keyLength;
+
+        Location(long segment, long offset, int length, int keyLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.keyLength = keyLength;
+        }
+    }
+
+    /**
+     * A segment file. Writes go through the file channel, sealed segments are read
+     * through a memory mapping created on first access.
+     */
+    private static class Segment {
+
+        private final long id;
+        private final File file;
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+        private long size;
+        private boolean sealed;
+        private MappedByteBuffer mapped;
+
+        Segment(long id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.channel = raf.getChannel();
+            this.size = channel.size();
+        }
+
+        long append(ByteBuffer record) throws IOException {
+            long offset = size;
+            while (record.hasRemaining()) {
+                size += channel.write(record, size);
+            }
+            return offset;
+        }
+
+        void read(long offset, byte[] target) throws IOException {
+            if (sealed) {
+                if (mapped == null) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+                ByteBuffer view = mapped.duplicate();
+                view.position((int) offset);
+                view.get(target);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(target);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of segment: " + file);
+                    }
+                }
+            }
+        }
+
+        void seal() throws IOException {
+            channel.force(false);
+            sealed = true;
+        }
+
+        void truncate(long newSize) throws IOException {
+            channel.truncate(newSize);
+            size = newSize;
+        }
+
+        void close() throws IOException {
+            mapped = null;
+            raf.close();
+        }
+    }
+
+    /**
+     * Parser for values read from the store, configured like the parsers of API
+     * responses.
+     *
+     * @param <T> The result type this parser produces.
+     */
+    private static class StoreParser<T> extends JsonParser<T> {
+
+        private final Type type;
+
+        StoreParser(TypeToken<T> type) {
+            super(type);
+            this.type = type.getType();
+        }
+
+        T parse(byte[] value) {
+            return getGson().fromJson(new InputStreamReader(
+                    new ByteArrayInputStream(value), StandardCharsets.UTF_8), type);
+        }
+    }
+
+    /**
+     * Serializer writing {@link Arguments} the way the API returns them: a list of
+     * the args followed by an object holding the kwargs.
+     */
+    private static class ArgumentsSerializer implements JsonSerializer<Arguments> {
+
+        @Override
+        public JsonElement serialize(Arguments arguments, Type type,
+                JsonSerializationContext context) {
+            JsonArray json = new JsonArray();
+            for (Object arg : arguments.getArgs()) {
+                json.add(context.serialize(arg));
+            }
+            if (!arguments.getKwargs().isEmpty()) {
+                JsonObject kwargs = new JsonObject();
+                kwargs.addProperty("__kwarg__", true);
+                for (Map.Entry<String, Object> kwarg : arguments.getKwargs().entrySet()) {
+                    kwargs.add(kwarg.getKey(), context.serialize(kwarg.getValue()));
+                }
+                json.add(kwargs);
+            }
+            return json;
+        }
+    }
+}
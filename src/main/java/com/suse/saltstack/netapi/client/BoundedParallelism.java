@@ -0,0 +1,208 @@
+package com.suse.saltstack.netapi.client;
+
+import com.suse.saltstack.netapi.exception.SaltStackException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Helper running a call for each of a collection of inputs on an executor, with at
+ * most a given number of calls running at the same time.
+ */
+class BoundedParallelism {
+
+    /**
+     * A call to run for a single input.
+     *
+     * @param <I> type of the input
+     * @param <O> type of the output
+     */
+    interface Call<I, O> {
+        O call(I input) throws SaltStackException;
+    }
+
+    /**
+     * Receives the outcome of every call as soon as it completed. Methods are invoked
+     * from the worker threads, including the calling thread. Unchecked exceptions of
+     * calls are passed to {@link #onFailure} wrapped in a {@link SaltStackException},
+     * unchecked exceptions of the callback stop the run and are rethrown to the
+     * caller.
+     *
+     * @param <I> type of the input
+     * @param <O> type of the output
+     */
+    interface Callback<I, O> {
+
+        /**
+         * Invoked with the output of a successful call.
+         *
+         * @param input the input
+         * @param output the output
+         * @return false to stop starting new calls
+         */
+        boolean onResult(I input, O output);
+
+        /**
+         * Invoked with the exception of a failed call.
+         *
+         * @param input the input
+         * @param e the exception
+         * @return false to stop starting new calls
+         */
+        boolean onFailure(I input, SaltStackException e);
+    }
+
+    private BoundedParallelism() {
+    }
+
+    /**
+     * Run a call for every input and wait for all of them to complete. The calling
+     * thread works on the inputs as well, helpers that have not been started by the
+     * executor once the caller ran out of inputs are cancelled. The calls therefore
+     * complete even if all threads of a bounded executor are busy, e.g. with other
+     * callers of this method.
+     *
+     * @param executor the executor to run the calls on
+     * @param parallelism maximum number of calls running at the same time
+     * @param inputs the inputs
+     * @param call the call to run for every input
+     * @param callback receives the outcome of every call
+     * @param <I> type of the input
+     * @param <O> type of the output
+     * @throws SaltStackException if interrupted while waiting
+     */
+    static <I, O> void run(ExecutorService executor, int parallelism,
+            Collection<I> inputs, Call<I, O> call, Callback<I, O> callback)
+            throws SaltStackException {
+        Worker<I, O> worker = new Worker<>(inputs, call, callback);
+        int helpers = Math.max(1, Math.min(parallelism, inputs.size())) - 1;
+
+        List<Helper> started = new ArrayList<>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            Helper helper = new Helper(worker);
+            helper.future = executor.submit(helper);
+            started.add(helper);
+        }
+        worker.call();
+
+        try {
+            for (Helper helper : started) {
+                // Helpers still waiting for a thread are not needed anymore
+                if (!helper.claim()) {
+                    helper.future.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            worker.stop();
+            Thread.currentThread().interrupt();
+            throw new SaltStackException(e);
+        } catch (ExecutionException e) {
+            worker.stop();
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SaltStackException(cause);
+        }
+        worker.rethrow();
+    }
+
+    /**
+     * Runs the worker on the executor unless the calling thread claimed it before it
+     * was started.
+     */
+    private static class Helper implements Callable<Void> {
+
+        private final Worker<?, ?> worker;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Future<Void> future;
+
+        Helper(Worker<?, ?> worker) {
+            this.worker = worker;
+        }
+
+        /**
+         * @return true if the helper had not been started and never will be
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public Void call() {
+            return claim() ? worker.call() : null;
+        }
+    }
+
+    /**
+     * Takes inputs from a shared queue and runs the call for each of them until the
+     * queue is empty. Run by the calling thread and the helpers on the executor.
+     */
+    private static class Worker<I, O> implements Callable<Void> {
+
+        private final Queue<I> queue;
+        private final Call<I, O> call;
+        private final Callback<I, O> callback;
+
+        /** The first exception thrown by the callback, if any */
+        private final AtomicReference<RuntimeException> thrown = new AtomicReference<>();
+
+        Worker(Collection<I> inputs, Call<I, O> call, Callback<I, O> callback) {
+            this.queue = new ConcurrentLinkedQueue<>(inputs);
+            this.call = call;
+            this.callback = callback;
+        }
+
+        @Override
+        public Void call() {
+            I input;
+            while ((input = queue.poll()) != null) {
+                O output = null;
+                SaltStackException failure = null;
+                try {
+                    output = call.call(input);
+                } catch (SaltStackException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    // e.g. unexpected responses the parser failed on
+                    failure = new SaltStackException(e);
+                }
+                boolean proceed;
+                try {
+                    proceed = failure == null ? callback.onResult(input, output)
+                            : callback.onFailure(input, failure);
+                } catch (RuntimeException e) {
+                    thrown.compareAndSet(null, e);
+                    proceed = false;
+                }
+                if (!proceed) {
+                    stop();
+                }
+            }
+            return null;
+        }
+
+        void stop() {
+            queue.clear();
+        }
+
+        /**
+         * Rethrow the first exception thrown by the callback.
+         */
+        void rethrow() {
+            RuntimeException e = thrown.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.suse.saltstack.netapi.client;
+
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.datatypes.Token;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.results.FederatedResult;
+import com.suse.saltstack.netapi.results.FederatedResultListener;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client sending calls to several independent salt masters in parallel, each of them
+ * accessed through its own {@link SaltStackClient}. Masters are identified by the
+ * {@link ClientConfig#URL} of their client, which therefore has to be unique.
+ */
+public class FederatedSaltStackClient implements Closeable {
+
+    /** The clients of the single masters */
+    private final List<SaltStackClient> clients;
+
+    /** The executor for the parallel calls */
+    private final ExecutorService executor;
+
+    /** Whether the executor was created by this client and is shut down on close */
+    private final boolean ownsExecutor;
+
+    /**
+     * Constructor using an internal executor, call {@link #close()} to shut it down.
+     *
+     * @param clients the clients of the single masters
+     */
+    public FederatedSaltStackClient(List<SaltStackClient> clients) {
+        this(clients, Executors.newCachedThreadPool(), true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param clients the clients of the single masters
+     * @param executor Executor for the parallel calls, not shut down by this client
+     */
+    public FederatedSaltStackClient(List<SaltStackClient> clients,
+            ExecutorService executor) {
+        this(clients, executor, false);
+    }
+
+    private FederatedSaltStackClient(List<SaltStackClient> clients,
+            ExecutorService executor, boolean ownsExecutor) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("at least one client is required");
+        }
+        Set<URI> urls = new HashSet<>();
+        for (SaltStackClient client : clients) {
+            if (!urls.add(client.getConfig().get(ClientConfig.URL))) {
+                throw new IllegalArgumentException("duplicate master URL: " +
+                        client.getConfig().get(ClientConfig.URL));
+            }
+        }
+        this.clients = Collections.unmodifiableList(new ArrayList<>(clients));
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Shut down the internal executor, if this client created one. Calls still
+     * running are not interrupted.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return the clients of the single masters
+     */
+    public List<SaltStackClient> getClients() {
+        return clients;
+    }
+
+    /**
+     * Perform login on all masters.
+     *
+     * POST /login
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @return authentication tokens keyed by master URL
+     */
+    public FederatedResult<Map<URI, Token>> login(final String username,
+            final String password, final String eauth, long timeoutMillis) {
+        return scatter(new MasterCall<Token>() {
+            @Override
+            public Token call(SaltStackClient client) throws SaltStackException {
+                return client.login(username, password, eauth);
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * Start an execution command on all masters and return the scheduled jobs.
+     *
+     * POST /minions
+     *
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @return objects representing the scheduled jobs keyed by master URL
+     */
+    public FederatedResult<Map<URI, JobMinions>> startCommand(final String target,
+            final String function, final List<String> args,
+            final Map<String, String> kwargs, long timeoutMillis) {
+        return scatter(new MasterCall<JobMinions>() {
+            @Override
+            public JobMinions call(SaltStackClient client) throws SaltStackException {
+                return client.startCommand(target, function, args, kwargs);
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * Run an execution command on all masters bypassing normal session handling and
+     * merge the results of all minions into one map. Minions answering through
+     * several masters (e.g. via syndics) are included once, with the result that
+     * arrived first.
+     *
+     * POST /run
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param client the client
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @return Map key: minion id, value: command result from that minion
+     */
+    public FederatedResult<Map<String, Object>> run(String username, String password,
+            String eauth, String client, String target, String function,
+            List<String> args, Map<String, String> kwargs, long timeoutMillis) {
+        return run(username, password, eauth, client, target, function, args, kwargs,
+                timeoutMillis, null);
+    }
+
+    /**
+     * Run an execution command on all masters bypassing normal session handling and
+     * merge the results of all minions into one map as the masters answer. Minions
+     * answering through several masters (e.g. via syndics) are included once, with
+     * the result that arrived first.
+     *
+     * POST /run
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param client the client
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @param listener notified with the new minions of every master that answered,
+     * or null
+     * @return Map key: minion id, value: command result from that minion
+     */
+    public FederatedResult<Map<String, Object>> run(final String username,
+            final String password, final String eauth, final String client,
+            final String target, final String function, final List<String> args,
+            final Map<String, String> kwargs, long timeoutMillis,
+            FederatedResultListener listener) {
+        Map<SaltStackClient, MasterCall<Map<String, Object>>> calls =
+                new LinkedHashMap<>();
+        for (SaltStackClient master : clients) {
+            calls.put(master, new MasterCall<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> call(SaltStackClient master)
+                        throws SaltStackException {
+                    return master.run(username, password, eauth, client, target,
+                            function, args, kwargs);
+                }
+            });
+        }
+        return scatterMinions(calls, timeoutMillis, listener);
+    }
+
+    /**
+     * Send calls returning per-minion results to the given masters and merge the
+     * results as they arrive, keeping the first result of every minion.
+     *
+     * @param calls the call to send to every master
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @param listener notified with the new minions of every master, or null
+     * @return Map key: minion id, value: command result from that minion
+     */
+    FederatedResult<Map<String, Object>> scatterMinions(
+            Map<SaltStackClient, MasterCall<Map<String, Object>>> calls,
+            long timeoutMillis, final FederatedResultListener listener) {
+        final Map<String, Object> merged = new LinkedHashMap<>();
+        FederatedResult<Map<URI, Map<String, Object>>> results = scatter(calls,
+                timeoutMillis, new ResultHandler<Map<String, Object>>() {
+                    @Override
+                    public void onResult(URI master, Map<String, Object> result) {
+                        Map<String, Object> added = new LinkedHashMap<>();
+                        for (Map.Entry<String, Object> entry : result.entrySet()) {
+                            if (!merged.containsKey(entry.getKey())) {
+                                merged.put(entry.getKey(), entry.getValue());
+                                added.put(entry.getKey(), entry.getValue());
+                            }
+                        }
+                        if (listener != null) {
+                            listener.onResult(master, added);
+                        }
+                    }
+                });
+        return new FederatedResult<>(merged, results.getErrors(), results.getTimedOut());
+    }
+
+    /**
+     * Send a call to all masters in parallel and gather the results as they arrive
+     * until all masters answered or the timeout expired. Calls still running at that
+     * point are cancelled.
+     *
+     * @param call the call to send
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @param <T> type of result of a single master
+     * @return results keyed by master URL in the order they arrived
+     */
+    private <T> FederatedResult<Map<URI, T>> scatter(MasterCall<T> call,
+            long timeoutMillis) {
+        Map<SaltStackClient, MasterCall<T>> calls = new LinkedHashMap<>();
+        for (SaltStackClient client : clients) {
+            calls.put(client, call);
+        }
+        return scatter(calls, timeoutMillis, null);
+    }
+
+    /**
+     * Send a specific call to each of the given masters in parallel and gather the
+     * results as they arrive until all masters answered or the timeout expired. Calls
+     * still running at that point are cancelled.
+     *
+     * @param calls the call to send to every master
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @param handler notified of every result as it arrives, or null
+     * @param <T> type of result of a single master
+     * @return results keyed by master URL in the order they arrived
+     */
+    <T> FederatedResult<Map<URI, T>> scatter(Map<SaltStackClient, MasterCall<T>> calls,
+            long timeoutMillis, ResultHandler<T> handler) {
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<T>, URI> pending = new HashMap<>();
+        for (final Map.Entry<SaltStackClient, MasterCall<T>> call : calls.entrySet()) {
+            Future<T> future = completion.submit(new Callable<T>() {
+                @Override
+                public T call() throws SaltStackException {
+                    return call.getValue().call(call.getKey());
+                }
+            });
+            pending.put(future, call.getKey().getConfig().get(ClientConfig.URL));
+        }
+
+        Map<URI, T> results = new LinkedHashMap<>();
+        Map<URI, SaltStackException> errors = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (!pending.isEmpty()) {
+                Future<T> done = completion.poll(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+                URI master = pending.remove(done);
+                try {
+                    T result = done.get();
+                    results.put(master, result);
+                    if (handler != null) {
+                        handler.onResult(master, result);
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    errors.put(master, cause instanceof SaltStackException ?
+                            (SaltStackException) cause : new SaltStackException(cause));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Set<URI> timedOut = new LinkedHashSet<>();
+        for (Map.Entry<Future<T>, URI> entry : pending.entrySet()) {
+            entry.getKey().cancel(true);
+            timedOut.add(entry.getValue());
+        }
+        return new FederatedResult<>(results, errors, timedOut);
+    }
+
+    /**
+     * A call to a single master.
+     *
+     * @param <T> type of result of the call
+     */
+    interface MasterCall<T> {
+        T call(SaltStackClient client) throws SaltStackException;
+    }
+
+    /**
+     * Receives the result of every master as it arrives, on the gathering thread.
+     *
+     * @param <T> type of result of a single master
+     */
+    interface ResultHandler<T> {
+        void onResult(URI master, T result);
+    }
+}
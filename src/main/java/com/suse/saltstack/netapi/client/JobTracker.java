@@ -0,0 +1,296 @@
+package com.suse.saltstack.netapi.client;
+
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.datatypes.Job;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.SaltDates;
+import com.suse.saltstack.netapi.results.JobListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps track of the jobs listed by the API and indexes them by function, user,
+ * target and start time.
+ * <p>
+ * Every {@link #refresh()} merges the current listing into the jobs seen before: only
+ * new jobs are parsed and update the indexes, and jobs that have disappeared from the
+ * job cache of the master are dropped. Job ids encode the start time of a job
+ * (yyyyMMddHHmmssSSSSSS in the time zone of the master) so jobs are kept sorted by job
+ * id, which also orders them by time.
+ */
+public class JobTracker {
+
+    private final SaltStackClient client;
+    private final TimeZone masterTimeZone;
+
+    private final TreeMap<String, Job> jobs = new TreeMap<>();
+    private final Map<String, NavigableSet<String>> byFunction = new HashMap<>();
+    private final Map<String, NavigableSet<String>> byUser = new HashMap<>();
+    private final Map<String, NavigableSet<String>> byTarget = new HashMap<>();
+
+    /**
+     * Constructor for a master running in the time zone configured with
+     * {@link ClientConfig#MASTER_TIME_ZONE}.
+     *
+     * @param client the client used to list the jobs
+     */
+    public JobTracker(SaltStackClient client) {
+        this(client, client.getConfig().get(ClientConfig.MASTER_TIME_ZONE));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param client the client used to list the jobs
+     * @param masterTimeZone the time zone of the master, used to interpret job ids
+     */
+    public JobTracker(SaltStackClient client, TimeZone masterTimeZone) {
+        this.client = client;
+        this.masterTimeZone = masterTimeZone;
+    }
+
+    /**
+     * Fetch the current job listing and merge it into the tracked jobs. The listing is
+     * streamed and only jobs that are not tracked yet are parsed.
+     *
+     * GET /jobs
+     *
+     * @return the ids of the jobs that were not tracked before
+     * @throws SaltStackException if anything goes wrong
+     */
+    public List<String> refresh() throws SaltStackException {
+        final Set<String> known;
+        synchronized (this) {
+            known = new HashSet<>(jobs.keySet());
+        }
+        final Set<String> listed = new HashSet<>();
+        final Map<String, Job> parsed = new HashMap<>();
+        client.streamJobs(new JobListener() {
+            @Override
+            public boolean accept(String jid) {
+                listed.add(jid);
+                return !known.contains(jid);
+            }
+
+            @Override
+            public boolean onJob(String jid, Job job) {
+                parsed.put(jid, job);
+                return true;
+            }
+        });
+        return merge(listed, parsed);
+    }
+
+    /**
+     * Merge a job listing into the tracked jobs.
+     *
+     * @param listing map containing the listed jobs keyed by job id
+     * @return the ids of the jobs that were not tracked before
+     */
+    List<String> merge(Map<String, Job> listing) {
+        return merge(listing.keySet(), listing);
+    }
+
+    /**
+     * Merge a job listing into the tracked jobs: tracked jobs that are not listed
+     * anymore are dropped, parsed jobs are added or replace changed ones.
+     */
+    private synchronized List<String> merge(Set<String> listed, Map<String, Job> parsed) {
+        List<String> added = new ArrayList<>();
+        Iterator<Map.Entry<String, Job>> it = jobs.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Job> entry = it.next();
+            if (!listed.contains(entry.getKey())) {
+                unindex(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+        }
+        for (Map.Entry<String, Job> entry : parsed.entrySet()) {
+            String jid = entry.getKey();
+            Job job = entry.getValue();
+            Job previous = jobs.get(jid);
+            if (previous == null) {
+                added.add(jid);
+            } else if (isSame(previous, job)) {
+                continue;
+            } else {
+                unindex(jid, previous);
+            }
+            jobs.put(jid, job);
+            index(byFunction, job.getFunction(), jid);
+            index(byUser, job.getUser(), jid);
+            index(byTarget, job.getTarget(), jid);
+        }
+        Collections.sort(added);
+        return added;
+    }
+
+    /**
+     * @return the number of tracked jobs
+     */
+    public synchronized int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Returns a tracked job.
+     *
+     * @param jid the job id
+     * @return the job or null if it is not tracked
+     */
+    public synchronized Job getJob(String jid) {
+        return jobs.get(jid);
+    }
+
+    /**
+     * Query the tracked jobs. Every criterion that is null matches all jobs.
+     *
+     * @param function the function of the jobs, e.g. state.apply
+     * @param user the user who started the jobs
+     * @param target the target of the jobs
+     * @param since the earliest start time (inclusive)
+     * @param until the latest start time (exclusive)
+     * @return map containing the matching jobs keyed by job id, ordered by start time
+     */
+    public synchronized SortedMap<String, Job> getJobs(String function, String user,
+            String target, Date since, Date until) {
+        String from = since == null ? null : toJid(since);
+        String to = until == null ? null : toJid(until);
+
+        // Start from the smallest index that applies
+        NavigableSet<String> candidates = smaller(null, lookup(byFunction, function));
+        candidates = smaller(candidates, lookup(byUser, user));
+        candidates = smaller(candidates, lookup(byTarget, target));
+        NavigableSet<String> jids = range(
+                candidates != null ? candidates : jobs.navigableKeySet(), from, to);
+
+        SortedMap<String, Job> result = new TreeMap<>();
+        for (String jid : jids) {
+            Job job = jobs.get(jid);
+            if (matches(function, job.getFunction()) && matches(user, job.getUser())
+                    && matches(target, job.getTarget())) {
+                result.put(jid, job);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the start time encoded in a job id.
+     *
+     * @param jid the job id
+     * @return the start time or null if the job id does not encode a time
+     */
+    public Date getStartTime(String jid) {
+        if (jid == null) {
+            return null;
+        }
+        try {
+            return new Date(SaltDates.parseJobId(jid, masterTimeZone));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the start time of a tracked job, in the time zone of the master.
+     *
+     * @param job the job
+     * @return the start time or null if it is not known
+     */
+    public Date getStartTime(Job job) {
+        return job.getStartTime(masterTimeZone);
+    }
+
+    /**
+     * Convert a time to the smallest job id started at that time.
+     */
+    private String toJid(Date date) {
+        return SaltDates.formatJobId(date.getTime(), masterTimeZone);
+    }
+
+    private NavigableSet<String> lookup(Map<String, NavigableSet<String>> index,
+            String key) {
+        if (key == null) {
+            return null;
+        }
+        NavigableSet<String> set = index.get(key);
+        return set != null ? set : new TreeSet<String>();
+    }
+
+    private static NavigableSet<String> smaller(NavigableSet<String> a,
+            NavigableSet<String> b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.size() < a.size() ? b : a;
+    }
+
+    private static NavigableSet<String> range(NavigableSet<String> set, String from,
+            String to) {
+        if (from != null && to != null) {
+            return from.compareTo(to) < 0 ? set.subSet(from, true, to, false)
+                    : new TreeSet<String>();
+        } else if (from != null) {
+            return set.tailSet(from, true);
+        } else if (to != null) {
+            return set.headSet(to, false);
+        }
+        return set;
+    }
+
+    private static boolean matches(String expected, String value) {
+        return expected == null || expected.equals(value);
+    }
+
+    private static boolean isSame(Job a, Job b) {
+        return Objects.equals(a.getFunction(), b.getFunction())
+                && Objects.equals(a.getUser(), b.getUser())
+                && Objects.equals(a.getTarget(), b.getTarget())
+                && Objects.equals(a.getTargetType(), b.getTargetType());
+    }
+
+    private void unindex(String jid, Job job) {
+        unindex(byFunction, job.getFunction(), jid);
+        unindex(byUser, job.getUser(), jid);
+        unindex(byTarget, job.getTarget(), jid);
+    }
+
+    private static void index(Map<String, NavigableSet<String>> index, String key,
+            String jid) {
+        if (key == null) {
+            return;
+        }
+        NavigableSet<String> set = index.get(key);
+        if (set == null) {
+            set = new TreeSet<>();
+            index.put(key, set);
+        }
+        set.add(jid);
+    }
+
+    private static void unindex(Map<String, NavigableSet<String>> index, String key,
+            String jid) {
+        NavigableSet<String> set = key == null ? null : index.get(key);
+        if (set != null) {
+            set.remove(jid);
+            if (set.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.suse.saltstack.netapi.client;
+
+import com.suse.saltstack.netapi.client.FederatedSaltStackClient.MasterCall;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.datatypes.target.MinionList;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.results.FederatedResult;
+import com.suse.saltstack.netapi.results.FederatedResultListener;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Routes calls targeting a list of minions to the masters owning them, for setups
+ * where minions are sharded across the masters of a {@link FederatedSaltStackClient}.
+ * <p>
+ * The router keeps a map of which master every minion belongs to. A list target is
+ * split into one sub-request per master containing only the minions it owns, and the
+ * sub-requests are sent in parallel. Minions of unknown ownership are sent to all
+ * masters. The map is updated from every response: minions returned by a master are
+ * owned by it, and minions a master was sent as their owner but did not return are
+ * forgotten, so they are sent to all masters next time.
+ */
+public class MinionRouter {
+
+    private final FederatedSaltStackClient federated;
+
+    /** Clients of the masters by URL */
+    private final Map<URI, SaltStackClient> masters = new LinkedHashMap<>();
+
+    /** Owning master by minion id */
+    private final ConcurrentMap<String, URI> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param federated the client of the masters to route to
+     */
+    public MinionRouter(FederatedSaltStackClient federated) {
+        this.federated = federated;
+        for (SaltStackClient client : federated.getClients()) {
+            masters.put(client.getConfig().get(ClientConfig.URL), client);
+        }
+    }
+
+    /**
+     * Returns the master owning a given minion.
+     *
+     * @param minion the minion id
+     * @return the URL of the owning master or null if unknown
+     */
+    public URI getOwner(String minion) {
+        return owners.get(minion);
+    }
+
+    /**
+     * @return an unmodifiable view of the owning master URL by minion id
+     */
+    public Map<String, URI> getOwners() {
+        return Collections.unmodifiableMap(owners);
+    }
+
+    /**
+     * Record that the given minions are owned by a master.
+     *
+     * @param master the URL of the master
+     * @param minions the minion ids
+     */
+    public void learn(URI master, Collection<String> minions) {
+        for (String minion : minions) {
+            owners.put(minion, master);
+        }
+    }
+
+    /**
+     * Forget the owner of a minion so it is sent to all masters next time.
+     *
+     * @param minion the minion id
+     */
+    public void forget(String minion) {
+        owners.remove(minion);
+    }
+
+    /**
+     * Start an execution command on a list of minions, sending it only to the
+     * masters owning them.
+     *
+     * POST /minions
+     *
+     * @param minions the minion ids
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @return objects representing the scheduled jobs keyed by master URL
+     */
+    public FederatedResult<Map<URI, JobMinions>> startCommand(List<String> minions,
+            final String function, final List<String> args,
+            final Map<String, String> kwargs, long timeoutMillis) {
+        Map<SaltStackClient, List<String>> partition = partition(minions);
+        Map<SaltStackClient, MasterCall<JobMinions>> calls = new LinkedHashMap<>();
+        for (final Map.Entry<SaltStackClient, List<String>> entry : partition.entrySet()) {
+            calls.put(entry.getKey(), new MasterCall<JobMinions>() {
+                @Override
+                public JobMinions call(SaltStackClient master)
+                        throws SaltStackException {
+                    return master.startCommand(new MinionList(entry.getValue()),
+                            function, args, kwargs);
+                }
+            });
+        }
+
+        FederatedResult<Map<URI, JobMinions>> result =
+                federated.scatter(calls, timeoutMillis, null);
+        for (Map.Entry<URI, JobMinions> entry : result.getResult().entrySet()) {
+            URI master = entry.getKey();
+            List<String> matched = entry.getValue().getMinions();
+            if (matched == null) {
+                continue;
+            }
+            learn(master, matched);
+            forgetMissing(master, partition.get(masters.get(master)), matched);
+        }
+        return result;
+    }
+
+    /**
+     * Run an execution command on a list of minions bypassing normal session handling,
+     * sending it only to the masters owning them and merging the results.
+     *
+     * POST /run
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param client the client
+     * @param minions the minion ids
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @param timeoutMillis maximum time in milliseconds to wait for the masters
+     * @return Map key: minion id, value: command result from that minion
+     */
+    public FederatedResult<Map<String, Object>> run(final String username,
+            final String password, final String eauth, final String client,
+            List<String> minions, final String function, final List<String> args,
+            final Map<String, String> kwargs, long timeoutMillis) {
+        final Map<SaltStackClient, List<String>> partition = partition(minions);
+        Map<SaltStackClient, MasterCall<Map<String, Object>>> calls =
+                new LinkedHashMap<>();
+        for (final Map.Entry<SaltStackClient, List<String>> entry :
+                partition.entrySet()) {
+            calls.put(entry.getKey(), new MasterCall<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> call(SaltStackClient master)
+                        throws SaltStackException {
+                    return master.run(username, password, eauth, client,
+                            new MinionList(entry.getValue()), function, args, kwargs);
+                }
+            });
+        }
+
+        return federated.scatterMinions(calls, timeoutMillis,
+                new FederatedResultListener() {
+                    @Override
+                    public void onResult(URI master, Map<String, Object> results) {
+                        learn(master, results.keySet());
+                        forgetMissing(master, partition.get(masters.get(master)),
+                                results.keySet());
+                    }
+                });
+    }
+
+    /**
+     * Forget the owner of the minions a master was sent as their owner but did not
+     * return, they have moved to another master or are gone.
+     *
+     * @param master the URL of the master
+     * @param sent the minion ids sent to the master
+     * @param returned the minion ids returned by the master
+     */
+    private void forgetMissing(URI master, Collection<String> sent,
+            Collection<String> returned) {
+        Set<String> returnedSet = new HashSet<>(returned);
+        for (String minion : sent) {
+            if (!returnedSet.contains(minion)) {
+                owners.remove(minion, master);
+            }
+        }
+    }
+
+    /**
+     * Split a list of minions by owning master. Minions of unknown ownership are
+     * added to the list of every master.
+     *
+     * @param minions the minion ids
+     * @return minion ids by master client, only including masters with minions
+     */
+    Map<SaltStackClient, List<String>> partition(List<String> minions) {
+        Map<URI, List<String>> byMaster = new LinkedHashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String minion : minions) {
+            URI owner = owners.get(minion);
+            if (owner == null || !masters.containsKey(owner)) {
+                unknown.add(minion);
+                continue;
+            }
+            List<String> owned = byMaster.get(owner);
+            if (owned == null) {
+                owned = new ArrayList<>();
+                byMaster.put(owner, owned);
+            }
+            owned.add(minion);
+        }
+
+        Map<SaltStackClient, List<String>> partition = new LinkedHashMap<>();
+        for (Map.Entry<URI, SaltStackClient> master : masters.entrySet()) {
+            List<String> targets = new ArrayList<>(unknown);
+            List<String> owned = byMaster.get(master.getKey());
+            if (owned != null) {
+                targets.addAll(owned);
+            }
+            if (!targets.isEmpty()) {
+                partition.put(master.getValue(), targets);
+            }
+        }
+        return partition;
+    }
+}
@@ -1,27 +1,51 @@
 package com.suse.saltstack.netapi.client;
 
 import com.suse.saltstack.netapi.Constants;
+import com.suse.saltstack.netapi.cache.JobResultCache;
+import com.suse.saltstack.netapi.cache.JobResultStore;
 import com.suse.saltstack.netapi.client.impl.HttpClientConnectionFactory;
 import com.suse.saltstack.netapi.config.ClientConfig;
 import com.suse.saltstack.netapi.config.ProxySettings;
 import com.suse.saltstack.netapi.datatypes.cherrypy.Stats;
+import com.suse.saltstack.netapi.datatypes.target.MinionList;
+import com.suse.saltstack.netapi.datatypes.target.Target;
+import com.suse.saltstack.netapi.exception.ChunkedCommandException;
+import com.suse.saltstack.netapi.exception.CircuitOpenException;
+import com.suse.saltstack.netapi.exception.HttpStatusException;
 import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JobStreamParser;
 import com.suse.saltstack.netapi.parser.JsonParser;
+import com.suse.saltstack.netapi.parser.LazyResultParser;
+import com.suse.saltstack.netapi.parser.ParallelResultParser;
+import com.suse.saltstack.netapi.parser.StateSummaryParser;
 import com.suse.saltstack.netapi.datatypes.Job;
 import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.datatypes.LowState;
+import com.suse.saltstack.netapi.datatypes.ScheduledJob;
+import com.suse.saltstack.netapi.results.BatchListener;
+import com.suse.saltstack.netapi.results.JobListener;
+import com.suse.saltstack.netapi.results.JobResultListener;
 import com.suse.saltstack.netapi.results.Result;
+import com.suse.saltstack.netapi.results.StateSummary;
 import com.suse.saltstack.netapi.datatypes.Token;
 
 import com.google.gson.JsonArray;
 
 import com.suse.saltstack.netapi.utils.ClientUtils;
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 /**
@@ -29,6 +53,14 @@ import java.util.concurrent.Future;
  */
 public class SaltStackClient {
 
+    /** Parsers returning lazily decoded results, shared like the parallel parsers */
+    private static final LazyResultParser LAZY_RETVALS = new LazyResultParser(false);
+    private static final LazyResultParser LAZY_COMPACT_RETVALS =
+            new LazyResultParser(true);
+
+    /** The state summary parser keeps no state between responses and is shared */
+    private static final StateSummaryParser STATE_SUMMARY = new StateSummaryParser();
+
     /** The configuration object */
     private final ClientConfig config = new ClientConfig();
 
@@ -38,6 +70,21 @@ public class SaltStackClient {
     /** The executor for async operations */
     private final ExecutorService executor;
 
+    /** The optional cache of completed job results */
+    private volatile JobResultCache jobResultCache;
+
+    /** The optional persistent store of completed job results and job listings */
+    private volatile JobResultStore jobResultStore;
+
+    /**
+     * Parsers decoding results in parallel by pool. Requests are coalesced by parser
+     * identity, so the same instances are used for every request.
+     */
+    private final ConcurrentMap<ForkJoinPool, ParallelResultParser> parallelParsers =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<ForkJoinPool, ParallelResultParser>
+            parallelCompactParsers = new ConcurrentHashMap<>();
+
     /**
      * Constructor for connecting to a given URL.
      *
@@ -91,6 +138,48 @@ public class SaltStackClient {
         return config;
     }
 
+    /**
+     * Set a cache for the results of completed jobs, consulted by
+     * {@link #getJobResult(String)} before querying the API. Results are stored once
+     * they contain all minions targeted by the job. Pass null to disable caching.
+     * While a cache is set, the results returned by {@link #getJobResult(String)} are
+     * unmodifiable, whether they come from the cache or not.
+     *
+     * @param cache the cache or null
+     */
+    public void setJobResultCache(JobResultCache cache) {
+        this.jobResultCache = cache;
+    }
+
+    /**
+     * @return the cache of completed job results or null if caching is disabled
+     */
+    public JobResultCache getJobResultCache() {
+        return jobResultCache;
+    }
+
+    /**
+     * Set a persistent store for the results of completed jobs and for job listings.
+     * {@link #getJobResult(String)} looks up results in the store before querying the
+     * API. {@link #getJobs()} saves new jobs of the listing and returns the stored jobs
+     * if the API cannot be queried. Results are saved once they
+     * contain all minions targeted by the job, which are known when calling
+     * {@link #getJobResult(JobMinions)} or, if a cache is set, for jobs started by this
+     * client. Pass null to disable the store.
+     *
+     * @param store the store or null
+     */
+    public void setJobResultStore(JobResultStore store) {
+        this.jobResultStore = store;
+    }
+
+    /**
+     * @return the persistent store of job results or null if it is disabled
+     */
+    public JobResultStore getJobResultStore() {
+        return jobResultStore;
+    }
+
     /**
      * Configure to use a proxy when connecting to the SaltStack API.
      *
@@ -239,9 +328,39 @@ public class SaltStackClient {
      */
     public JobMinions startCommand(final String target, final String function,
             List<String> args, Map<String, String> kwargs) throws SaltStackException {
+        return startCommand(target, null, function, args, kwargs);
+    }
+
+    /**
+     * Generic interface to start any execution command on a given {@link Target} and
+     * immediately return the job id.
+     *
+     * POST /minions
+     *
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @return object representing the scheduled job
+     * @throws SaltStackException if anything goes wrong
+     */
+    public JobMinions startCommand(Target target, String function, List<String> args,
+            Map<String, String> kwargs) throws SaltStackException {
+        return startCommand(target.getTarget(), target.getType(), function, args, kwargs);
+    }
+
+    /**
+     * Start an execution command, sending the expression form if given.
+     */
+    private JobMinions startCommand(final String target, final String exprForm,
+            final String function, List<String> args, Map<String, String> kwargs)
+            throws SaltStackException {
         Map<String, String> props = new LinkedHashMap<String, String>() {
             {
                 put("tgt", target);
+                if (exprForm != null) {
+                    put("expr_form", exprForm);
+                }
                 put("fun", function);
             }
         };
@@ -255,7 +374,12 @@ public class SaltStackClient {
                 .getResult(jsonArray.toString());
 
         // They return a list of tokens here, we take the first
-        return result.getResult().get(0);
+        JobMinions job = result.getResult().get(0);
+        JobResultCache cache = jobResultCache;
+        if (cache != null && job != null) {
+            cache.expect(job.getJid(), job.getMinions());
+        }
+        return job;
     }
 
     /**
@@ -280,6 +404,30 @@ public class SaltStackClient {
         return executor.submit(callable);
     }
 
+    /**
+     * Asynchronously start any execution command on a given {@link Target} and
+     * immediately return the job id
+     *
+     * POST /minions
+     *
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @return Future containing the scheduled job {@link JobMinions}
+     */
+    public Future<JobMinions> startCommandAsync(final Target target,
+            final String function, final List<String> args,
+            final Map<String, String> kwargs) {
+        Callable<JobMinions> callable = new Callable<JobMinions>() {
+            @Override
+            public JobMinions call() throws SaltStackException {
+                return startCommand(target, function, args, kwargs);
+            }
+        };
+        return executor.submit(callable);
+    }
+
     /**
      * Query for result of supplied job.
      *
@@ -291,7 +439,7 @@ public class SaltStackClient {
      */
     public Map<String, Object> getJobResult(final JobMinions job)
             throws SaltStackException {
-        return getJobResult(job.getJid());
+        return getJobResult(job.getJid(), job.getMinions());
     }
 
     /**
@@ -304,8 +452,128 @@ public class SaltStackClient {
      * @throws SaltStackException if anything goes wrong
      */
     public Map<String, Object> getJobResult(final String job) throws SaltStackException {
-        Result<List<Map<String, Object>>> result = connectionFactory
-                .create("/jobs/" + job, JsonParser.RETVALS, config)
+        return getJobResult(job, (Collection<String>) null);
+    }
+
+    /**
+     * Query for result of supplied job, decoding it with a parser specialized for the
+     * function of the job, e.g. {@link JsonParser#STATE_APPLY}. The result is neither
+     * looked up in nor added to the job result cache and store.
+     *
+     * GET /job/<job-id>
+     *
+     * @param job String representing scheduled job
+     * @param parser the parser for the result
+     * @param <T> the type of the result
+     * @return the result
+     * @throws SaltStackException if anything goes wrong
+     */
+    public <T> T getJobResult(String job, JsonParser<Result<List<T>>> parser)
+            throws SaltStackException {
+        return fetchJobResult(job, parser);
+    }
+
+    /**
+     * Query for the result of a state run job (state.apply, state.sls or
+     * state.highstate) and summarize it per minion and for all minions while it is
+     * read, without building the result.
+     *
+     * GET /job/<job-id>
+     *
+     * @param job String representing scheduled job
+     * @return the summary of all minions
+     * @throws SaltStackException if anything goes wrong
+     */
+    public StateSummary getStateSummary(String job) throws SaltStackException {
+        return connectionFactory
+                .create("/jobs/" + job, STATE_SUMMARY, config)
+                .getResult();
+    }
+
+    /**
+     * Look up the result of a job in the cache and the store before querying the API.
+     * A fetched result is kept if it contains all targeted minions, which are taken
+     * from the cache if not given.
+     */
+    private Map<String, Object> getJobResult(String job, Collection<String> minions)
+            throws SaltStackException {
+        JobResultCache cache = jobResultCache;
+        JobResultStore store = jobResultStore;
+        if (cache == null && store == null) {
+            return fetchJobResult(job, getRetvalsParser());
+        }
+        Map<String, Object> result = cache != null ? cache.get(job) : null;
+        if (result != null) {
+            return result;
+        }
+        if (store != null) {
+            try {
+                result = store.getJobResult(job, getRetvalsParser(),
+                        config.get(ClientConfig.JSON_ENGINE));
+            } catch (IOException | RuntimeException e) {
+                // A broken store or record is treated like a missing entry
+                result = null;
+            }
+            if (result != null) {
+                if (cache != null) {
+                    result = JobResultCache.immutableCopy(result);
+                    cache.put(job, result.keySet(), result);
+                }
+                return result;
+            }
+        }
+
+        result = fetchJobResult(job, getRetvalsParser());
+        if (cache != null) {
+            // Returned like a cached result, see JobResultCache.get
+            result = JobResultCache.immutableCopy(result);
+        }
+        if (minions == null && cache != null) {
+            minions = cache.getExpectedMinions(job);
+        }
+        if (minions != null && result.keySet().containsAll(minions)) {
+            if (cache != null) {
+                cache.put(job, minions, result);
+            }
+            if (store != null) {
+                try {
+                    store.putJobResult(job, result);
+                } catch (IOException | RuntimeException e) {
+                    // The result is still returned, it will be fetched again next time
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the parser for command results as configured.
+     */
+    private JsonParser<Result<List<Map<String, Object>>>> getRetvalsParser() {
+        boolean compact = config.get(ClientConfig.COMPACT_RESULTS);
+        ForkJoinPool pool = config.get(ClientConfig.PARSER_POOL);
+        if (config.get(ClientConfig.LAZY_RESULTS)) {
+            return compact ? LAZY_COMPACT_RETVALS : LAZY_RETVALS;
+        } else if (pool != null) {
+            ConcurrentMap<ForkJoinPool, ParallelResultParser> parsers =
+                    compact ? parallelCompactParsers : parallelParsers;
+            ParallelResultParser parser = parsers.get(pool);
+            if (parser == null) {
+                parsers.putIfAbsent(pool, new ParallelResultParser(pool, compact));
+                parser = parsers.get(pool);
+            }
+            return parser;
+        }
+        return compact ? JsonParser.COMPACT_RETVALS : JsonParser.RETVALS;
+    }
+
+    /**
+     * Query the API for the result of a job.
+     */
+    private <T> T fetchJobResult(String job, JsonParser<Result<List<T>>> parser)
+            throws SaltStackException {
+        Result<List<T>> result = connectionFactory
+                .create("/jobs/" + job, parser, config)
                 .getResult();
 
         // A list with one element is returned, we take the first
@@ -313,15 +581,116 @@ public class SaltStackClient {
     }
 
     /**
-     * Get previously run jobs.
+     * Query for the results of several jobs, with a given number of requests in
+     * parallel. Results are passed to the listener as soon as they are available, a
+     * job whose result cannot be fetched or decoded is reported to the listener
+     * without aborting the others. Returns once all jobs have been processed. The
+     * calling thread takes part in the requests, so this can be called from a thread
+     * of the executor of this client.
+     *
+     * GET /jobs/<job-id>
+     *
+     * @param jids the job ids
+     * @param parallelism maximum number of requests in parallel
+     * @param listener the listener receiving results and failures
+     * @throws SaltStackException if interrupted while waiting for the results
+     */
+    public void getJobResults(Collection<String> jids, int parallelism,
+            final JobResultListener listener) throws SaltStackException {
+        BoundedParallelism.run(executor, parallelism, jids,
+                new BoundedParallelism.Call<String, Map<String, Object>>() {
+                    @Override
+                    public Map<String, Object> call(String jid) throws SaltStackException {
+                        return getJobResult(jid);
+                    }
+                }, new BoundedParallelism.Callback<String, Map<String, Object>>() {
+                    @Override
+                    public boolean onResult(String jid, Map<String, Object> result) {
+                        listener.onResult(jid, result);
+                        return true;
+                    }
+
+                    @Override
+                    public boolean onFailure(String jid, SaltStackException e) {
+                        listener.onFailure(jid, e);
+                        return true;
+                    }
+                });
+    }
+
+    /**
+     * Get previously run jobs. If a job result store is set, new jobs are saved to it
+     * and the stored jobs are returned if the API cannot be reached or fails with a
+     * server error. Other errors, such as an expired token, are thrown.
      * @return map containing run jobs keyed by job id.
      * @throws SaltStackException if anything goes wrong
      */
     public Map<String, Job> getJobs() throws SaltStackException {
-        Result<List<Map<String, Job>>> result = connectionFactory
-                .create("/jobs", JsonParser.JOBS, config)
+        JobResultStore store = jobResultStore;
+        Map<String, Job> jobs;
+        try {
+            Result<List<Map<String, Job>>> result = connectionFactory
+                    .create("/jobs", JsonParser.JOBS, config)
+                    .getResult();
+            jobs = result.getResult().get(0);
+        } catch (SaltStackException e) {
+            Map<String, Job> stored = isUnavailable(e) ? getStoredJobs(store) : null;
+            if (stored == null) {
+                throw e;
+            }
+            return stored;
+        }
+        if (store != null) {
+            try {
+                store.putJobs(jobs);
+            } catch (IOException | RuntimeException e) {
+                // The listing is still returned, saving it is best effort only
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Returns true if a request failed because the API is unavailable rather than
+     * because of the request itself: an I/O problem, a server error or an open circuit.
+     */
+    private static boolean isUnavailable(SaltStackException e) {
+        return e.getCause() instanceof IOException || e instanceof CircuitOpenException ||
+                (e instanceof HttpStatusException &&
+                ((HttpStatusException) e).isServerError());
+    }
+
+    /**
+     * Returns the jobs saved in a store, or null if there are none or the store cannot
+     * be read.
+     */
+    private static Map<String, Job> getStoredJobs(JobResultStore store) {
+        if (store == null) {
+            return null;
+        }
+        try {
+            Map<String, Job> jobs = store.getJobs();
+            return jobs.isEmpty() ? null : jobs;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get previously run jobs one at a time while the listing is read, without
+     * building the whole listing in memory. The listener decides which jobs are parsed
+     * and can stop reading the listing at any time.
+     *
+     * GET /jobs
+     *
+     * @param listener the listener receiving the jobs
+     * @return the number of jobs passed to the listener
+     * @throws SaltStackException if anything goes wrong
+     */
+    public int streamJobs(JobListener listener) throws SaltStackException {
+        return connectionFactory
+                .create("/jobs", new JobStreamParser(listener), config)
                 .getResult();
-        return result.getResult().get(0);
     }
 
     /**
@@ -358,6 +727,201 @@ public class SaltStackClient {
             final String eauth, final String client, final String target,
             final String function, List<String> args, Map<String, String> kwargs)
             throws SaltStackException {
+        return run(username, password, eauth, client, target, null, function,
+                args, kwargs, getRetvalsParser());
+    }
+
+    /**
+     * Generic interface to start any execution command on a given {@link Target}
+     * bypassing normal session handling. A {@link MinionList} containing more minions
+     * than {@link ClientConfig#TARGET_CHUNK_SIZE} is split into several requests sent
+     * in parallel, and their results are merged.
+     *
+     * POST /run
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param client the client
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @return Map key: minion id, value: command result from that minion
+     * @throws ChunkedCommandException if some of the chunks failed, holding the
+     * results of the others
+     * @throws SaltStackException if anything goes wrong
+     */
+    public Map<String, Object> run(String username, String password, String eauth,
+            String client, Target target, String function, List<String> args,
+            Map<String, String> kwargs) throws SaltStackException {
+        int chunkSize = config.get(ClientConfig.TARGET_CHUNK_SIZE);
+        if (target instanceof MinionList && chunkSize > 0 &&
+                ((MinionList) target).getMinions().size() > chunkSize) {
+            return runChunked(username, password, eauth, client,
+                    split((MinionList) target, chunkSize), function, args, kwargs);
+        }
+        return run(username, password, eauth, client, target.getTarget(),
+                target.getType(), function, args, kwargs, getRetvalsParser());
+    }
+
+    /**
+     * Generic interface to start any execution command on a given {@link Target}
+     * bypassing normal session handling, decoding the result with a parser specialized
+     * for the function, e.g. {@link JsonParser#PING} for test.ping or
+     * {@link JsonParser#STATE_APPLY} for state.apply. The command is sent in a single
+     * request regardless of {@link ClientConfig#TARGET_CHUNK_SIZE}.
+     *
+     * POST /run
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param client the client
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @param parser the parser for the result
+     * @param <T> the type of the result
+     * @return the result
+     * @throws SaltStackException if anything goes wrong
+     */
+    public <T> T run(String username, String password, String eauth, String client,
+            Target target, String function, List<String> args,
+            Map<String, String> kwargs, JsonParser<Result<List<T>>> parser)
+            throws SaltStackException {
+        return run(username, password, eauth, client, target.getTarget(),
+                target.getType(), function, args, kwargs, parser);
+    }
+
+    /**
+     * Run an execution command on several chunks of a list target in parallel and
+     * merge the results. All chunks are run even if some of them fail.
+     */
+    private Map<String, Object> runChunked(final String username, final String password,
+            final String eauth, final String client, List<MinionList> chunks,
+            final String function, final List<String> args,
+            final Map<String, String> kwargs) throws SaltStackException {
+        final Map<String, Object> merged = new LinkedHashMap<>();
+        final Map<MinionList, SaltStackException> failures = new LinkedHashMap<>();
+
+        BoundedParallelism.run(executor, config.get(ClientConfig.TARGET_CHUNK_PARALLELISM),
+                chunks, new BoundedParallelism.Call<MinionList, Map<String, Object>>() {
+                    @Override
+                    public Map<String, Object> call(MinionList chunk)
+                            throws SaltStackException {
+                        return run(username, password, eauth, client, chunk.getTarget(),
+                                chunk.getType(), function, args, kwargs,
+                                getRetvalsParser());
+                    }
+                }, new BoundedParallelism.Callback<MinionList, Map<String, Object>>() {
+                    @Override
+                    public boolean onResult(MinionList chunk, Map<String, Object> result) {
+                        synchronized (merged) {
+                            merged.putAll(result);
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean onFailure(MinionList chunk, SaltStackException e) {
+                        synchronized (failures) {
+                            failures.put(chunk, e);
+                        }
+                        return true;
+                    }
+                });
+
+        if (!failures.isEmpty()) {
+            throw new ChunkedCommandException(merged,
+                    Collections.<JobMinions>emptyList(), failures);
+        }
+        return merged;
+    }
+
+    /**
+     * Start an execution command on a list of minions, splitting it into several jobs
+     * of at most {@link ClientConfig#TARGET_CHUNK_SIZE} minions each that are started
+     * in parallel.
+     *
+     * POST /minions
+     *
+     * @param target the minions to target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @return objects representing the scheduled jobs, one per chunk
+     * @throws ChunkedCommandException if starting some of the jobs failed, holding
+     * the jobs that were started
+     * @throws SaltStackException if interrupted while waiting
+     */
+    public List<JobMinions> startCommandChunked(MinionList target, final String function,
+            final List<String> args, final Map<String, String> kwargs)
+            throws SaltStackException {
+        int chunkSize = config.get(ClientConfig.TARGET_CHUNK_SIZE);
+        List<MinionList> chunks = chunkSize > 0 ? split(target, chunkSize) :
+                Collections.singletonList(target);
+        final Map<MinionList, JobMinions> jobs = new ConcurrentHashMap<>();
+        final Map<MinionList, SaltStackException> failures = new ConcurrentHashMap<>();
+
+        BoundedParallelism.run(executor, config.get(ClientConfig.TARGET_CHUNK_PARALLELISM),
+                chunks, new BoundedParallelism.Call<MinionList, JobMinions>() {
+                    @Override
+                    public JobMinions call(MinionList chunk) throws SaltStackException {
+                        return startCommand(chunk, function, args, kwargs);
+                    }
+                }, new BoundedParallelism.Callback<MinionList, JobMinions>() {
+                    @Override
+                    public boolean onResult(MinionList chunk, JobMinions job) {
+                        jobs.put(chunk, job);
+                        return true;
+                    }
+
+                    @Override
+                    public boolean onFailure(MinionList chunk, SaltStackException e) {
+                        failures.put(chunk, e);
+                        return true;
+                    }
+                });
+
+        List<JobMinions> result = new ArrayList<>(chunks.size());
+        Map<MinionList, SaltStackException> failed = new LinkedHashMap<>();
+        for (MinionList chunk : chunks) {
+            if (jobs.containsKey(chunk)) {
+                result.add(jobs.get(chunk));
+            } else {
+                failed.put(chunk, failures.get(chunk));
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new ChunkedCommandException(Collections.<String, Object>emptyMap(),
+                    result, failed);
+        }
+        return result;
+    }
+
+    /**
+     * Split a list target into chunks of a given maximum size.
+     */
+    private static List<MinionList> split(MinionList target, int chunkSize) {
+        List<String> minions = target.getMinions();
+        List<MinionList> chunks = new ArrayList<>();
+        for (int i = 0; i < minions.size(); i += chunkSize) {
+            chunks.add(new MinionList(
+                    minions.subList(i, Math.min(minions.size(), i + chunkSize))));
+        }
+        return chunks;
+    }
+
+    /**
+     * Run an execution command, sending the expression form if given.
+     */
+    private <T> T run(final String username, final String password,
+            final String eauth, final String client, final String target,
+            final String exprForm, final String function, List<String> args,
+            Map<String, String> kwargs, JsonParser<Result<List<T>>> parser)
+            throws SaltStackException {
         Map<String, String> props = new LinkedHashMap<String, String>() {
             {
                 put("username", username);
@@ -365,6 +929,9 @@ public class SaltStackClient {
                 put("eauth", eauth);
                 put("client", client);
                 put("tgt", target);
+                if (exprForm != null) {
+                    put("expr_form", exprForm);
+                }
                 put("fun", function);
             }
         };
@@ -372,8 +939,8 @@ public class SaltStackClient {
         JsonArray jsonArray = new JsonArray();
         jsonArray.add(ClientUtils.makeJsonData(props, kwargs, args));
 
-        Result<List<Map<String, Object>>> result = connectionFactory
-                .create("/run", JsonParser.RETVALS, config)
+        Result<List<T>> result = connectionFactory
+                .create("/run", parser, config)
                 .getResult(jsonArray.toString());
 
         // A list with one element is returned, we take the first
@@ -409,6 +976,148 @@ public class SaltStackClient {
         return executor.submit(callable);
     }
 
+    /**
+     * Asynchronously start any execution command on a given {@link Target} bypassing
+     * normal session handling.
+     *
+     * POST /run
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param client the client
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @return Future containing Map key: minion id, value: command result from that minion
+     */
+    public Future<Map<String, Object>> runAsync(final String username,
+            final String password, final String eauth, final String client,
+            final Target target, final String function, final List<String> args,
+            final Map<String, String> kwargs) {
+        Callable<Map<String, Object>> callable = new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() throws SaltStackException {
+                return run(username, password, eauth, client,
+                        target, function, args, kwargs);
+            }
+        };
+        return executor.submit(callable);
+    }
+
+    /**
+     * Execute a command in batch mode bypassing normal session handling, so that only
+     * a given number or percentage of the targeted minions run it at the same time.
+     * <p>
+     * The batches are formed by the client, like salt's own batch mode does: the
+     * minions of a {@link MinionList} are taken as given, other targets are resolved
+     * by pinging them first. Every batch is then run with the local client and its
+     * results are passed to the listener as soon as the batch has completed, before
+     * the next batch is started.
+     *
+     * POST /run
+     *
+     * @param username the username
+     * @param password the password
+     * @param eauth the eauth type
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @param batch the batch size, either a number of minions (e.g. "10") or a
+     * percentage of the targeted minions (e.g. "10%")
+     * @param listener the listener receiving the results of every batch
+     * @return the number of batches run
+     * @throws SaltStackException if anything goes wrong
+     */
+    public int runBatch(String username, String password, String eauth, Target target,
+            String function, List<String> args, Map<String, String> kwargs,
+            String batch, BatchListener listener) throws SaltStackException {
+        List<String> minions;
+        if (target instanceof MinionList) {
+            minions = ((MinionList) target).getMinions();
+        } else {
+            Map<String, Object> pinged = run(username, password, eauth,
+                    Constants.CLIENT_LOCAL, target.getTarget(), target.getType(),
+                    "test.ping", null, null, JsonParser.RETVALS);
+            minions = new ArrayList<>(pinged.keySet());
+        }
+        if (minions.isEmpty()) {
+            return 0;
+        }
+
+        List<MinionList> batches = split(new MinionList(minions),
+                getBatchSize(batch, minions.size()));
+        for (MinionList chunk : batches) {
+            listener.onBatch(run(username, password, eauth, Constants.CLIENT_LOCAL,
+                    chunk.getTarget(), chunk.getType(), function, args, kwargs,
+                    getRetvalsParser()));
+        }
+        return batches.size();
+    }
+
+    /**
+     * Returns the number of minions per batch for a batch size given as a number or
+     * a percentage, rounded up like salt does and at least 1.
+     */
+    private static int getBatchSize(String batch, int minions) {
+        String value = batch.trim();
+        try {
+            if (value.endsWith("%")) {
+                double percent = Double.parseDouble(
+                        value.substring(0, value.length() - 1).trim());
+                return Math.max(1, (int) Math.ceil(minions * percent / 100));
+            }
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid batch size: " + batch);
+        }
+    }
+
+    /**
+     * Start one or several calls through the asynchronous clients (local_async,
+     * runner_async, wheel_async) in a single request and immediately return the
+     * handles of the started jobs.
+     *
+     * POST /
+     *
+     * @param lowStates the lowstate chunks to send
+     * @return the started jobs, in the order of the lowstate chunks
+     * @throws SaltStackException if anything goes wrong
+     */
+    public List<ScheduledJob> startAsync(List<LowState> lowStates)
+            throws SaltStackException {
+        JsonArray jsonArray = new JsonArray();
+        for (LowState lowState : lowStates) {
+            if (!lowState.getClient().endsWith("_async")) {
+                throw new IllegalArgumentException(
+                        "Not an asynchronous client: " + lowState.getClient());
+            }
+            jsonArray.add(ClientUtils.makeLowStateData(lowState));
+        }
+
+        Result<List<ScheduledJob>> result = connectionFactory
+                .create("/", JsonParser.SCHEDULED_JOBS, config)
+                .getResult(jsonArray.toString());
+        return result.getResult();
+    }
+
+    /**
+     * Start a single call through one of the asynchronous clients and immediately
+     * return the handle of the started job.
+     *
+     * POST /
+     *
+     * @param lowState the lowstate chunk to send, e.g. from
+     * {@link LowState#runnerAsync(String, Map)}
+     * @return the started job
+     * @throws SaltStackException if anything goes wrong
+     */
+    public ScheduledJob startAsync(LowState lowState) throws SaltStackException {
+        return startAsync(Collections.singletonList(lowState)).get(0);
+    }
+
     /**
      * Query statistics from the CherryPy Server.
      *
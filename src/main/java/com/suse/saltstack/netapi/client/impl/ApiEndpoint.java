@@ -0,0 +1,122 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.datatypes.cherrypy.HttpServer;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single salt-api instance used by the {@link LoadBalancingConnectionFactory},
+ * tracking the requests in flight and its health.
+ */
+public class ApiEndpoint {
+
+    private final URI uri;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long ejectedUntil;
+    private volatile int serverLoad;
+    private volatile long serverLoadValidUntil;
+
+    /**
+     * Constructor.
+     *
+     * @param uri the base URI of the salt-api instance
+     */
+    public ApiEndpoint(URI uri) {
+        this.uri = uri;
+    }
+
+    /**
+     * @return the base URI of the salt-api instance
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return the number of requests that failed in a row
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * Checks whether this endpoint may currently receive requests.
+     *
+     * @param now the current time in milliseconds
+     * @return false if the endpoint is ejected
+     */
+    public boolean isAvailable(long now) {
+        return now >= ejectedUntil;
+    }
+
+    /**
+     * Returns a score for how busy this endpoint is, lower is better. This is the
+     * number of requests we have in flight plus, if recent server statistics are
+     * available, the number of busy worker threads and queued connections reported
+     * by the server.
+     *
+     * @param now the current time in milliseconds
+     * @return the load score
+     */
+    public int getLoadScore(long now) {
+        int score = outstanding.get();
+        if (now < serverLoadValidUntil) {
+            score += serverLoad;
+        }
+        return score;
+    }
+
+    /**
+     * Update the server side load from the statistics of the CherryPy HTTP server.
+     *
+     * @param server the HTTP server statistics
+     * @param validUntil time in milliseconds until which the statistics are used
+     */
+    void updateServerLoad(HttpServer server, long validUntil) {
+        int busy = Math.max(0, server.getThreads() - server.getThreadsIdle());
+        serverLoad = busy + Math.max(0, server.getQueue());
+        serverLoadValidUntil = validUntil;
+    }
+
+    void requestStarted() {
+        outstanding.incrementAndGet();
+    }
+
+    void requestFinished() {
+        outstanding.decrementAndGet();
+    }
+
+    void onSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    /**
+     * Record a failed request, ejecting the endpoint once too many failed in a row.
+     *
+     * @param maxFailures number of failures in a row leading to ejection
+     * @param ejectionMillis time in milliseconds the endpoint is ejected for
+     */
+    void onFailure(int maxFailures, long ejectionMillis) {
+        if (consecutiveFailures.incrementAndGet() >= maxFailures) {
+            ejectedUntil = System.currentTimeMillis() + ejectionMillis;
+            consecutiveFailures.set(0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ApiEndpoint{" +
+                "uri=" + uri +
+                ", outstanding=" + outstanding +
+                '}';
+    }
+}
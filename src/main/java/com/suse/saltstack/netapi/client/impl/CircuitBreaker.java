@@ -0,0 +1,196 @@
+package com.suse.saltstack.netapi.client.impl;
+
+/**
+ * Circuit breaker for a single endpoint.
+ * <p>
+ * The outcomes of the most recent calls are kept in a sliding window. Once enough
+ * calls have been recorded and either the rate of failed calls or the rate of slow
+ * calls reaches its threshold the circuit opens and calls are rejected right away.
+ * After a wait time the circuit becomes half-open and lets a few probe calls through:
+ * if they all succeed it closes again, otherwise it opens for another wait time.
+ */
+public class CircuitBreaker {
+
+    /**
+     * States of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final int probeCalls;
+
+    // Sliding window of call outcomes
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int position;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    /**
+     * Constructor using default settings: a window of 20 calls evaluated after at least
+     * 10 calls, 50% failure rate, 80% slow call rate for calls over 5 seconds, 30
+     * seconds open and 3 probe calls.
+     */
+    public CircuitBreaker() {
+        this(20, 10, 0.5, 0.8, 5000, 30000, 3);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windowSize number of most recent calls taken into account
+     * @param minimumCalls number of calls needed before the rates are evaluated
+     * @param failureRateThreshold rate of failed calls opening the circuit
+     * @param slowCallRateThreshold rate of slow calls opening the circuit
+     * @param slowCallMillis duration in milliseconds from which a call is slow
+     * @param openMillis time in milliseconds the circuit stays open
+     * @param probeCalls number of calls let through while half-open
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+            double slowCallRateThreshold, long slowCallMillis, long openMillis,
+            int probeCalls) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize ||
+                probeCalls < 1) {
+            throw new IllegalArgumentException(
+                    "window, minimum and probe calls must be positive, minimum <= window");
+        }
+        this.failed = new boolean[windowSize];
+        this.slow = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.probeCalls = probeCalls;
+    }
+
+    /**
+     * Ask for permission to make a call.
+     *
+     * @return true if the call may be made, false if it must be rejected
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= probeCalls) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * Record a call that completed.
+     *
+     * @param durationMillis the duration of the call in milliseconds, or a negative
+     * value if the duration should not be checked
+     */
+    public synchronized void onSuccess(long durationMillis) {
+        boolean isSlow = durationMillis >= slowCallMillis;
+        if (state == State.HALF_OPEN) {
+            if (isSlow) {
+                open();
+            } else if (++probesSucceeded >= probeCalls) {
+                close();
+            }
+            return;
+        }
+        record(false, isSlow);
+    }
+
+    /**
+     * Record a call that failed.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true, false);
+    }
+
+    /**
+     * Release a permission without recording an outcome, e.g. when the call failed for
+     * reasons unrelated to the health of the endpoint.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * @return the current state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void record(boolean isFailure, boolean isSlow) {
+        if (state != State.CLOSED) {
+            // Calls started before the circuit opened
+            return;
+        }
+        if (recorded == failed.length) {
+            if (failed[position]) {
+                failures--;
+            }
+            if (slow[position]) {
+                slowCalls--;
+            }
+        } else {
+            recorded++;
+        }
+        failed[position] = isFailure;
+        slow[position] = isSlow;
+        if (isFailure) {
+            failures++;
+        }
+        if (isSlow) {
+            slowCalls++;
+        }
+        position = (position + 1) % failed.length;
+
+        if (recorded >= minimumCalls &&
+                ((double) failures / recorded >= failureRateThreshold ||
+                (double) slowCalls / recorded >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openMillis;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,175 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.Connection;
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.CircuitOpenException;
+import com.suse.saltstack.netapi.exception.HttpStatusException;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonEngine;
+import com.suse.saltstack.netapi.parser.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Connection factory decorator guarding every salt-api endpoint (as given by
+ * {@link ClientConfig#URL}) with its own {@link CircuitBreaker}.
+ * <p>
+ * Requests to an endpoint whose circuit is open fail right away with a
+ * {@link CircuitOpenException} instead of waiting for the connect timeout. I/O
+ * problems and server errors (5xx) count as failures, and GET requests whose response
+ * takes longer than the slow call threshold to arrive count as slow calls. The time
+ * spent parsing the response is not included, it depends on the size of the result
+ * rather than on the health of the endpoint. POST requests block for as long as the
+ * executed command takes, so their duration is not checked. When used as the
+ * delegate of a {@link LoadBalancingConnectionFactory} rejected requests are sent to
+ * another endpoint. A {@link CoalescingConnectionFactory} should wrap this factory
+ * rather than be wrapped by it, identical requests are only coalesced for the same
+ * parser.
+ */
+public class CircuitBreakerConnectionFactory implements ConnectionFactory {
+
+    /** The factory creating the actual connections */
+    private final ConnectionFactory delegate;
+
+    /** Circuit breakers by endpoint */
+    private final ConcurrentMap<URI, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor wrapping a given connection factory.
+     *
+     * @param delegate the factory creating the actual connections
+     */
+    public CircuitBreakerConnectionFactory(ConnectionFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Connection<T> create(String endpoint, JsonParser<T> parser,
+            ClientConfig config) {
+        final URI uri = config.get(ClientConfig.URL);
+        final CircuitBreaker breaker = getCircuitBreaker(uri);
+        final ArrivalParser<T> arrival = new ArrivalParser<>(parser);
+        final Connection<T> connection = delegate.create(endpoint, arrival, config);
+
+        return new Connection<T>() {
+            @Override
+            public T getResult() throws SaltStackException {
+                acquire(breaker, uri);
+                long start = System.currentTimeMillis();
+                arrival.arrivedAt = 0;
+                boolean recorded = false;
+                try {
+                    T result = connection.getResult();
+                    recorded = true;
+                    long end = arrival.arrivedAt;
+                    breaker.onSuccess(
+                            (end != 0 ? end : System.currentTimeMillis()) - start);
+                    return result;
+                } catch (SaltStackException | RuntimeException e) {
+                    recorded = true;
+                    onFailure(breaker, e);
+                    throw e;
+                } finally {
+                    if (!recorded) {
+                        // Errors must not keep a half-open probe slot forever
+                        breaker.onIgnored();
+                    }
+                }
+            }
+
+            @Override
+            public T getResult(String data) throws SaltStackException {
+                acquire(breaker, uri);
+                boolean recorded = false;
+                try {
+                    T result = connection.getResult(data);
+                    recorded = true;
+                    breaker.onSuccess(-1);
+                    return result;
+                } catch (SaltStackException | RuntimeException e) {
+                    recorded = true;
+                    onFailure(breaker, e);
+                    throw e;
+                } finally {
+                    if (!recorded) {
+                        breaker.onIgnored();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the circuit breaker of a given endpoint, creating it if necessary.
+     *
+     * @param uri the base URI of the endpoint
+     * @return the circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker(URI uri) {
+        CircuitBreaker breaker = breakers.get(uri);
+        if (breaker == null) {
+            CircuitBreaker created = newCircuitBreaker(uri);
+            breaker = breakers.putIfAbsent(uri, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Create the circuit breaker for a new endpoint. Override to customize settings.
+     *
+     * @param uri the base URI of the endpoint
+     * @return a new circuit breaker
+     */
+    protected CircuitBreaker newCircuitBreaker(URI uri) {
+        return new CircuitBreaker();
+    }
+
+    private void acquire(CircuitBreaker breaker, URI uri) throws CircuitOpenException {
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException("Circuit open for " + uri);
+        }
+    }
+
+    private void onFailure(CircuitBreaker breaker, Exception e) {
+        if (e.getCause() instanceof IOException || (e instanceof HttpStatusException
+                && ((HttpStatusException) e).isServerError())) {
+            breaker.onFailure();
+        } else {
+            // The endpoint answered, the problem is with the request
+            breaker.onSuccess(-1);
+        }
+    }
+
+    /**
+     * Parser decorator noting the time the response arrived, i.e. when parsing starts.
+     *
+     * @param <T> the type of the parsed result
+     */
+    private static class ArrivalParser<T> extends JsonParser<T> {
+
+        private final JsonParser<T> parser;
+        private volatile long arrivedAt;
+
+        ArrivalParser(JsonParser<T> parser) {
+            super(parser);
+            this.parser = parser;
+        }
+
+        @Override
+        public T parse(InputStream inputStream, JsonEngine engine) {
+            arrivedAt = System.currentTimeMillis();
+            return parser.parse(inputStream, engine);
+        }
+    }
+}
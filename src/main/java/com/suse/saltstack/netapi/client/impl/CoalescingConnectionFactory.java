@@ -0,0 +1,178 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.Connection;
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonParser;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Connection factory decorator coalescing identical concurrent GET requests.
+ * <p>
+ * While a GET request for a given URL and token is in flight, any further identical
+ * request waits for it instead of being sent on its own, and all callers receive the
+ * same parsed result object. Results are therefore shared and must not be modified.
+ * POST requests are always passed through to the underlying connection.
+ */
+public class CoalescingConnectionFactory implements ConnectionFactory {
+
+    /** The factory creating the actual connections */
+    private final ConnectionFactory delegate;
+
+    /** Requests currently in flight */
+    private final ConcurrentMap<RequestKey, FutureTask<?>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructor wrapping a given connection factory.
+     *
+     * @param delegate the factory creating the actual connections
+     */
+    public CoalescingConnectionFactory(ConnectionFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Connection<T> create(String endpoint, JsonParser<T> parser,
+            ClientConfig config) {
+        return new CoalescingConnection<>(endpoint, parser, config);
+    }
+
+    /**
+     * Returns the number of distinct GET requests currently in flight.
+     *
+     * @return number of requests in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Connection sharing the result of identical GET requests.
+     *
+     * @param <T> type of result retrieved using this connection
+     */
+    private class CoalescingConnection<T> implements Connection<T> {
+
+        private final String endpoint;
+        private final JsonParser<T> parser;
+        private final ClientConfig config;
+
+        CoalescingConnection(String endpoint, JsonParser<T> parser, ClientConfig config) {
+            this.endpoint = endpoint;
+            this.parser = parser;
+            this.config = config;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public T getResult() throws SaltStackException {
+            final Connection<T> connection = delegate.create(endpoint, parser, config);
+            RequestKey key = new RequestKey(config.get(ClientConfig.URL).resolve(endpoint),
+                    config.get(ClientConfig.TOKEN), parser);
+
+            FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+                @Override
+                public T call() throws SaltStackException {
+                    return connection.getResult();
+                }
+            });
+
+            @SuppressWarnings("unchecked")
+            FutureTask<T> running = (FutureTask<T>) inFlight.putIfAbsent(key, task);
+            if (running == null) {
+                // We are the first caller, send the request ourselves
+                try {
+                    task.run();
+                } finally {
+                    inFlight.remove(key, task);
+                }
+                running = task;
+            }
+            return await(running);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public T getResult(String data) throws SaltStackException {
+            return delegate.create(endpoint, parser, config).getResult(data);
+        }
+
+        /**
+         * Wait for a shared request and unwrap its outcome.
+         *
+         * @param task the task performing the request
+         * @return the result of the request
+         * @throws SaltStackException if the request was not successful
+         */
+        private T await(FutureTask<T> task) throws SaltStackException {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SaltStackException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SaltStackException) {
+                    throw (SaltStackException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new SaltStackException(cause);
+            }
+        }
+    }
+
+    /**
+     * Identifies requests that can share a single result.
+     */
+    private static class RequestKey {
+
+        private final URI uri;
+        private final String token;
+        private final JsonParser<?> parser;
+
+        RequestKey(URI uri, String token, JsonParser<?> parser) {
+            this.uri = uri;
+            this.token = token;
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RequestKey)) {
+                return false;
+            }
+            RequestKey other = (RequestKey) o;
+            return uri.equals(other.uri) && parser == other.parser &&
+                    (token == null ? other.token == null : token.equals(other.token));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = uri.hashCode();
+            result = 31 * result + (token != null ? token.hashCode() : 0);
+            result = 31 * result + System.identityHashCode(parser);
+            return result;
+        }
+    }
+}
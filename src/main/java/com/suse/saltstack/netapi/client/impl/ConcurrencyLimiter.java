@@ -0,0 +1,198 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.exception.SaltStackException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit on the number of concurrent requests using AIMD.
+ * <p>
+ * The limit grows additively (by roughly one per window of successful requests) while
+ * requests are served quickly and shrinks multiplicatively when a request fails with
+ * an I/O problem or when several consecutive requests to an endpoint are slower than
+ * the tolerated multiple of the lowest latency recently observed for that endpoint.
+ * Latencies are tracked per endpoint since cheap and expensive calls (e.g. /stats
+ * versus /jobs/&lt;jid&gt;) cannot be compared to one another. Callers exceeding the
+ * limit wait for a free slot up to a maximum time and are rejected afterwards.
+ */
+public class ConcurrencyLimiter {
+
+    /** Samples after which the lowest observed latency is measured again */
+    private static final int MIN_LATENCY_WINDOW = 500;
+
+    /** Consecutive slow samples of an endpoint after which the limit is decreased */
+    private static final int SLOW_SAMPLES = 3;
+
+    /** Key of the samples not attributed to any endpoint */
+    private static final String DEFAULT_ENDPOINT = "";
+
+    /**
+     * Latency history of a single endpoint.
+     */
+    private static class Latency {
+        private long min = Long.MAX_VALUE;
+        private int samples;
+        private int slowSamples;
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitNanos;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private final Map<String, Latency> latencies = new HashMap<>();
+
+    private double limit;
+    private int inFlight;
+    private long rejected;
+
+    /**
+     * Constructor using default tuning: a limit between 1 and 200 starting at 20,
+     * no waiting for free slots, a backoff ratio of 0.9 and a latency tolerance of 2.
+     */
+    public ConcurrencyLimiter() {
+        this(20, 1, 200, 0, 0.9, 2.0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param initialLimit the limit to start with
+     * @param minLimit the lowest the limit may shrink to
+     * @param maxLimit the highest the limit may grow to
+     * @param maxWaitMillis maximum time in milliseconds to wait for a free slot
+     * @param backoffRatio factor applied to the limit on overload, between 0 and 1
+     * @param latencyTolerance multiple of the lowest observed latency considered normal
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+            long maxWaitMillis, double backoffRatio, double latencyTolerance) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit ||
+                initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                    "limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Take a slot for a request, waiting for one to become free if necessary.
+     *
+     * @throws SaltStackException if no slot became free in time
+     */
+    public synchronized void acquire() throws SaltStackException {
+        long remaining = maxWaitNanos;
+        long deadline = System.nanoTime() + remaining;
+        while (inFlight >= (int) limit) {
+            if (remaining <= 0) {
+                rejected++;
+                throw new SaltStackException(
+                        "Concurrency limit of " + (int) limit + " requests reached");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SaltStackException(e);
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Free a slot after a successful request and adapt the limit to its latency.
+     *
+     * @param latencyNanos the time the request took in nanoseconds
+     */
+    public void onSuccess(long latencyNanos) {
+        onSuccess(DEFAULT_ENDPOINT, latencyNanos);
+    }
+
+    /**
+     * Free a slot after a successful request and adapt the limit to its latency
+     * compared to the latencies previously observed for the same endpoint.
+     *
+     * @param endpoint the endpoint the request was sent to
+     * @param latencyNanos the time the request took in nanoseconds
+     */
+    public synchronized void onSuccess(String endpoint, long latencyNanos) {
+        release();
+        Latency latency = latencies.get(endpoint);
+        if (latency == null) {
+            latency = new Latency();
+            latencies.put(endpoint, latency);
+        }
+        if (++latency.samples >= MIN_LATENCY_WINDOW) {
+            latency.samples = 0;
+            latency.min = Long.MAX_VALUE;
+        }
+        latency.min = Math.min(latency.min, latencyNanos);
+
+        if (latencyNanos <= latency.min * latencyTolerance) {
+            latency.slowSamples = 0;
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        } else if (++latency.slowSamples >= SLOW_SAMPLES) {
+            latency.slowSamples = 0;
+            decrease();
+        }
+    }
+
+    /**
+     * Free a slot after a request that failed because the server is overloaded or
+     * unreachable and shrink the limit.
+     */
+    public synchronized void onDropped() {
+        release();
+        decrease();
+    }
+
+    /**
+     * Free a slot without taking the request into account for the limit, e.g. for
+     * requests failing for reasons unrelated to server load or whose latency is not
+     * meaningful.
+     */
+    public synchronized void onIgnored() {
+        release();
+    }
+
+    /**
+     * @return the current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the number of requests currently holding a slot
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of requests rejected so far
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
@@ -0,0 +1,140 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.Connection;
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.HttpStatusException;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Connection factory decorator limiting the number of concurrent requests sent to the
+ * API using an adaptive {@link ConcurrencyLimiter}.
+ * <p>
+ * The latency of GET requests is used to adapt the limit, compared per endpoint with
+ * resource identifiers collapsed (e.g. all /jobs/&lt;jid&gt; requests share one
+ * baseline). POST requests (such as
+ * calls to /run) block for as long as the executed command takes, so only their
+ * failures are taken into account.
+ */
+public class ConcurrencyLimitingConnectionFactory implements ConnectionFactory {
+
+    /** The factory creating the actual connections */
+    private final ConnectionFactory delegate;
+
+    /** The limiter shared by all connections */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Constructor wrapping a given connection factory using a default limiter.
+     *
+     * @param delegate the factory creating the actual connections
+     */
+    public ConcurrencyLimitingConnectionFactory(ConnectionFactory delegate) {
+        this(delegate, new ConcurrencyLimiter());
+    }
+
+    /**
+     * Constructor wrapping a given connection factory using a specific limiter.
+     *
+     * @param delegate the factory creating the actual connections
+     * @param limiter the limiter
+     */
+    public ConcurrencyLimitingConnectionFactory(ConnectionFactory delegate,
+            ConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Connection<T> create(String endpoint, JsonParser<T> parser,
+            ClientConfig config) {
+        final Connection<T> connection = delegate.create(endpoint, parser, config);
+        final String latencyKey = getLatencyKey(endpoint);
+        return new Connection<T>() {
+            @Override
+            public T getResult() throws SaltStackException {
+                limiter.acquire();
+                long start = System.nanoTime();
+                boolean released = false;
+                try {
+                    T result = connection.getResult();
+                    released = true;
+                    limiter.onSuccess(latencyKey, System.nanoTime() - start);
+                    return result;
+                } catch (SaltStackException | RuntimeException e) {
+                    released = true;
+                    onFailure(e);
+                    throw e;
+                } finally {
+                    if (!released) {
+                        // Errors must not leak the slot
+                        limiter.onIgnored();
+                    }
+                }
+            }
+
+            @Override
+            public T getResult(String data) throws SaltStackException {
+                limiter.acquire();
+                boolean released = false;
+                try {
+                    T result = connection.getResult(data);
+                    released = true;
+                    limiter.onIgnored();
+                    return result;
+                } catch (SaltStackException | RuntimeException e) {
+                    released = true;
+                    onFailure(e);
+                    throw e;
+                } finally {
+                    if (!released) {
+                        limiter.onIgnored();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the limiter used by this factory
+     */
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Group the endpoints whose latencies are comparable: the query is dropped and
+     * everything after the first path segment is collapsed.
+     *
+     * @param endpoint the endpoint of a request
+     * @return the key to track the latency of the request under
+     */
+    static String getLatencyKey(String endpoint) {
+        int query = endpoint.indexOf('?');
+        String path = query < 0 ? endpoint : endpoint.substring(0, query);
+        int segment = path.indexOf('/', 1);
+        return segment < 0 || segment == path.length() - 1 ? path :
+                path.substring(0, segment) + "/*";
+    }
+
+    /**
+     * Release the slot of a failed request, shrinking the limit on I/O problems such
+     * as timeouts and on server errors such as 503 from an overloaded API.
+     *
+     * @param e the exception the request failed with
+     */
+    private void onFailure(Exception e) {
+        if (e.getCause() instanceof IOException || (e instanceof HttpStatusException
+                && ((HttpStatusException) e).isServerError())) {
+            limiter.onDropped();
+        } else {
+            limiter.onIgnored();
+        }
+    }
+}
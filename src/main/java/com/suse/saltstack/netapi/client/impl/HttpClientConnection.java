@@ -2,6 +2,7 @@ package com.suse.saltstack.netapi.client.impl;
 
 import com.suse.saltstack.netapi.client.Connection;
 import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.HttpStatusException;
 import com.suse.saltstack.netapi.exception.SaltStackException;
 import com.suse.saltstack.netapi.parser.JsonParser;
 import org.apache.http.HttpHost;
@@ -135,11 +136,12 @@ public class HttpClientConnection<T> implements Connection<T> {
                 int statusCode = response.getStatusLine().getStatusCode();
                 if (statusCode != HttpStatus.SC_OK &&
                         statusCode != HttpStatus.SC_ACCEPTED) {
-                    throw new SaltStackException("Response code: " + statusCode);
+                    throw new HttpStatusException(statusCode);
                 }
 
                 // Parse result type from the returned JSON
-                return parser.parse(response.getEntity().getContent());
+                return parser.parse(response.getEntity().getContent(),
+                        config.get(ClientConfig.JSON_ENGINE));
             }
         } catch (IOException e) {
             throw new SaltStackException(e);
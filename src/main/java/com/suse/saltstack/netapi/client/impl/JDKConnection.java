@@ -3,6 +3,7 @@ package com.suse.saltstack.netapi.client.impl;
 import com.suse.saltstack.netapi.client.Connection;
 import com.suse.saltstack.netapi.config.ClientConfig;
 
+import com.suse.saltstack.netapi.exception.HttpStatusException;
 import com.suse.saltstack.netapi.exception.SaltStackException;
 import com.suse.saltstack.netapi.parser.JsonParser;
 
@@ -101,10 +102,11 @@ public class JDKConnection<T> implements Connection<T> {
             int responseCode = connection.getResponseCode();
             if (responseCode == HttpURLConnection.HTTP_OK ||
                     responseCode == HttpURLConnection.HTTP_ACCEPTED) {
-                return parser.parse(connection.getInputStream());
+                return parser.parse(connection.getInputStream(),
+                        config.get(ClientConfig.JSON_ENGINE));
             } else {
                 // Request was not successful
-                throw new SaltStackException("Response code: " + responseCode);
+                throw new HttpStatusException(responseCode);
             }
         } catch (IOException e) {
             throw new SaltStackException(e);
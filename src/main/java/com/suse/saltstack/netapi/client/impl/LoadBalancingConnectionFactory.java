@@ -0,0 +1,198 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.Connection;
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.CircuitOpenException;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Connection factory spreading requests across several salt-api instances serving
+ * the same master(s).
+ * <p>
+ * Every request goes to the less busy of two randomly picked endpoints (power of two
+ * choices on the number of requests in flight, plus the server side load when a
+ * {@link StatsSampler} is running). Endpoints failing with I/O problems several times
+ * in a row are ejected for a while. GET requests failing that way are retried on
+ * another endpoint, POST requests are not since they may have been executed already.
+ * Requests rejected by an open circuit (see {@link CircuitBreakerConnectionFactory})
+ * were never sent and are always retried. The URL in the given {@link ClientConfig}
+ * is ignored, all other settings including the token are used for every endpoint.
+ */
+public class LoadBalancingConnectionFactory implements ConnectionFactory {
+
+    /** Default number of failures in a row leading to ejection */
+    public static final int DEFAULT_MAX_FAILURES = 3;
+
+    /** Default time in milliseconds an endpoint is ejected for */
+    public static final long DEFAULT_EJECTION_MILLIS = 30000;
+
+    /** The factory creating the actual connections */
+    private final ConnectionFactory delegate;
+
+    private final List<ApiEndpoint> endpoints;
+    private final int maxFailures;
+    private final long ejectionMillis;
+
+    /**
+     * Constructor using the default ejection settings.
+     *
+     * @param uris base URIs of the salt-api instances
+     * @param delegate the factory creating the actual connections
+     */
+    public LoadBalancingConnectionFactory(Collection<URI> uris,
+            ConnectionFactory delegate) {
+        this(uris, delegate, DEFAULT_MAX_FAILURES, DEFAULT_EJECTION_MILLIS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param uris base URIs of the salt-api instances
+     * @param delegate the factory creating the actual connections
+     * @param maxFailures number of failures in a row leading to ejection
+     * @param ejectionMillis time in milliseconds a failing endpoint is ejected for
+     */
+    public LoadBalancingConnectionFactory(Collection<URI> uris, ConnectionFactory delegate,
+            int maxFailures, long ejectionMillis) {
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("at least one URI is required");
+        }
+        List<ApiEndpoint> list = new ArrayList<>(uris.size());
+        for (URI uri : uris) {
+            list.add(new ApiEndpoint(uri));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.delegate = delegate;
+        this.maxFailures = maxFailures;
+        this.ejectionMillis = ejectionMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> Connection<T> create(final String endpoint, final JsonParser<T> parser,
+            final ClientConfig config) {
+        return new Connection<T>() {
+            @Override
+            public T getResult() throws SaltStackException {
+                return request(endpoint, parser, config, null);
+            }
+
+            @Override
+            public T getResult(String data) throws SaltStackException {
+                return request(endpoint, parser, config, data);
+            }
+        };
+    }
+
+    /**
+     * @return the endpoints requests are spread across
+     */
+    public List<ApiEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Send a request to the best endpoint, retrying GET requests elsewhere on I/O
+     * problems.
+     */
+    private <T> T request(String endpoint, JsonParser<T> parser, ClientConfig config,
+            String data) throws SaltStackException {
+        List<ApiEndpoint> tried = new ArrayList<>(endpoints.size());
+        SaltStackException failure = null;
+
+        for (int i = 0; i < endpoints.size(); i++) {
+            ApiEndpoint target = choose(tried);
+            tried.add(target);
+
+            ClientConfig endpointConfig = new ClientConfig(config);
+            endpointConfig.put(ClientConfig.URL, target.getUri());
+            Connection<T> connection = delegate.create(endpoint, parser, endpointConfig);
+
+            target.requestStarted();
+            try {
+                T result = data == null ? connection.getResult() :
+                        connection.getResult(data);
+                target.onSuccess();
+                return result;
+            } catch (CircuitOpenException e) {
+                target.onFailure(maxFailures, ejectionMillis);
+                failure = e;
+            } catch (SaltStackException e) {
+                if (!(e.getCause() instanceof IOException)) {
+                    // The endpoint answered, the problem is with the request
+                    target.onSuccess();
+                    throw e;
+                }
+                target.onFailure(maxFailures, ejectionMillis);
+                if (data != null) {
+                    throw e;
+                }
+                failure = e;
+            } finally {
+                target.requestFinished();
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Pick the less busy of two random available endpoints not tried yet. If all
+     * endpoints are ejected they are used regardless.
+     *
+     * @param exclude endpoints already tried for the current request
+     * @return the chosen endpoint
+     */
+    protected ApiEndpoint choose(List<ApiEndpoint> exclude) {
+        long now = System.currentTimeMillis();
+        List<ApiEndpoint> candidates = new ArrayList<>(endpoints.size());
+        for (ApiEndpoint e : endpoints) {
+            if (e.isAvailable(now) && !exclude.contains(e)) {
+                candidates.add(e);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (ApiEndpoint e : endpoints) {
+                if (!exclude.contains(e)) {
+                    candidates.add(e);
+                }
+            }
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ApiEndpoint a = candidates.get(first);
+        ApiEndpoint b = candidates.get(second);
+        return compare(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * Compare two endpoints by how suitable they are for the next request.
+     *
+     * @param a the first endpoint
+     * @param b the second endpoint
+     * @return a negative number if a should be preferred, a positive one for b
+     */
+    protected int compare(ApiEndpoint a, ApiEndpoint b) {
+        long now = System.currentTimeMillis();
+        return Integer.compare(a.getLoadScore(now), b.getLoadScore(now));
+    }
+}
@@ -0,0 +1,98 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.datatypes.cherrypy.Stats;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonParser;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically queries /stats on every endpoint of a
+ * {@link LoadBalancingConnectionFactory} and feeds the busy worker threads and queued
+ * connections reported by CherryPy into the endpoint selection, so requests are
+ * steered away from saturated nodes.
+ * <p>
+ * Statistics are used for three sampling intervals, endpoints that could not be
+ * sampled fall back to the number of requests in flight.
+ */
+public class StatsSampler {
+
+    private final LoadBalancingConnectionFactory balancer;
+    private final ConnectionFactory connectionFactory;
+    private final ClientConfig config;
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param balancer the load balancer whose endpoints to sample
+     * @param connectionFactory the factory creating connections to single endpoints
+     * @param config the configuration to use, /stats requires a valid token
+     * @param intervalMillis time in milliseconds between two samples
+     */
+    public StatsSampler(LoadBalancingConnectionFactory balancer,
+            ConnectionFactory connectionFactory, ClientConfig config, long intervalMillis) {
+        this.balancer = balancer;
+        this.connectionFactory = connectionFactory;
+        this.config = config;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Start sampling in a background thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "salt-api-stats-sampler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop sampling.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Query the statistics of all endpoints once.
+     */
+    public void sample() {
+        for (ApiEndpoint endpoint : balancer.getEndpoints()) {
+            ClientConfig endpointConfig = new ClientConfig(config);
+            endpointConfig.put(ClientConfig.URL, endpoint.getUri());
+            try {
+                Stats stats = connectionFactory
+                        .create("/stats", JsonParser.STATS, endpointConfig)
+                        .getResult();
+                endpoint.updateServerLoad(stats.getHttpServer(),
+                        System.currentTimeMillis() + 3 * intervalMillis);
+            } catch (SaltStackException | RuntimeException e) {
+                // Keep the last known values until they expire
+            }
+        }
+    }
+}
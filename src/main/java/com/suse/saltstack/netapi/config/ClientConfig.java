@@ -1,8 +1,12 @@
 package com.suse.saltstack.netapi.config;
 
+import com.suse.saltstack.netapi.parser.JsonEngine;
+
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A statically typed key/value store for the Saltstack client configuration.
@@ -34,6 +38,64 @@ public class ClientConfig {
      */
     public static final Key<Integer> SOCKET_TIMEOUT = new Key<>(10000);
 
+    /**
+     * Maximum number of minions sent in a single request when running a command on
+     * a {@link com.suse.saltstack.netapi.datatypes.target.MinionList}. Larger lists
+     * are split into several requests whose results are merged.
+     * A value of zero disables splitting.
+     * Default value is 0
+     */
+    public static final Key<Integer> TARGET_CHUNK_SIZE = new Key<>(0);
+
+    /**
+     * Maximum number of requests sent in parallel for the chunks of a split target.
+     * Default value is 4
+     */
+    public static final Key<Integer> TARGET_CHUNK_PARALLELISM = new Key<>(4);
+
+    /**
+     * The engine reading JSON responses, e.g.
+     * {@link com.suse.saltstack.netapi.parser.JacksonJsonEngine}.
+     * Default value is null, the parsers use a
+     * {@link com.suse.saltstack.netapi.parser.GsonJsonEngine}
+     */
+    public static final Key<JsonEngine> JSON_ENGINE = new Key<>();
+
+    /**
+     * Parse command results into the compact result model of
+     * {@link com.suse.saltstack.netapi.parser.JsonParser#COMPACT_RETVALS}: immutable
+     * array backed maps and integral numbers as Long instead of Double.
+     * Default value is false
+     */
+    public static final Key<Boolean> COMPACT_RESULTS = new Key<>(false);
+
+    /**
+     * Pool for decoding the minions of large command results in parallel with a
+     * {@link com.suse.saltstack.netapi.parser.ParallelResultParser}.
+     * Default value is null, results are parsed on the calling thread
+     */
+    public static final Key<ForkJoinPool> PARSER_POOL = new Key<>();
+
+    /**
+     * Return command results as a
+     * {@link com.suse.saltstack.netapi.parser.LazyResultMap}, decoding the result of a
+     * minion when it is accessed. Takes precedence over {@link #PARSER_POOL}.
+     * Results put into a job result store are decoded completely.
+     * Default value is false
+     */
+    public static final Key<Boolean> LAZY_RESULTS = new Key<>(false);
+
+    /**
+     * The time zone of the master. Job ids and the start times of jobs are returned in
+     * the local time of the master without a time zone.
+     * Default value is UTC
+     *
+     * @see com.suse.saltstack.netapi.datatypes.Job#getStartTime(TimeZone)
+     * @see com.suse.saltstack.netapi.client.JobTracker
+     */
+    public static final Key<TimeZone> MASTER_TIME_ZONE =
+            new Key<>(TimeZone.getTimeZone("UTC"));
+
     // Proxy settings
     public static final Key<String> PROXY_HOSTNAME = new Key<>();
     public static final Key<Integer> PROXY_PORT = new Key<>(3128);
@@ -69,6 +131,21 @@ public class ClientConfig {
 
     private final Map<Key, Object> store = new HashMap<>();
 
+    /**
+     * Creates a new empty configuration.
+     */
+    public ClientConfig() {
+    }
+
+    /**
+     * Creates a copy of the given configuration.
+     *
+     * @param other the configuration to copy
+     */
+    public ClientConfig(ClientConfig other) {
+        store.putAll(other.store);
+    }
+
     /**
      *  Sets the config for a key to the specified value.
      *
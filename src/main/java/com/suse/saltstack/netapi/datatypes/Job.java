@@ -1,16 +1,25 @@
 package com.suse.saltstack.netapi.datatypes;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.suse.saltstack.netapi.datatypes.cherrypy.Arguments;
+import com.suse.saltstack.netapi.parser.JsonReaders;
+import com.suse.saltstack.netapi.parser.SaltDates;
 
-// TODO - handle dates too (they are represented in really
-// exotic format: (2015, Mar 04 19:28:29.724698))
+import java.io.IOException;
+import java.util.Date;
+import java.util.TimeZone;
 
 /**
  * Representation of a previously run job.
  */
 public class Job {
 
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
     @SerializedName("Function")
     private String function;
 
@@ -26,6 +35,11 @@ public class Job {
     @SerializedName("Arguments")
     private Arguments arguments;
 
+    /** Local time of the master as milliseconds since the Epoch in UTC, or null */
+    @SerializedName("StartTime")
+    @JsonAdapter(StartTimeAdapter.class)
+    private Long startTime;
+
     public String getFunction() {
         return function;
     }
@@ -45,4 +59,57 @@ public class Job {
     public Arguments getArguments() {
         return arguments;
     }
+
+    /**
+     * Returns the start time of the job for a master running in UTC.
+     *
+     * @return the start time or null if it was not returned or could not be parsed
+     * @see #getStartTime(TimeZone)
+     */
+    public Date getStartTime() {
+        return getStartTime(UTC);
+    }
+
+    /**
+     * Returns the start time of the job. The API returns it without a time zone, in
+     * the local time of the master.
+     *
+     * @param masterTimeZone the time zone of the master, usually
+     * {@link com.suse.saltstack.netapi.config.ClientConfig#MASTER_TIME_ZONE}
+     * @return the start time or null if it was not returned or could not be parsed
+     */
+    public Date getStartTime(TimeZone masterTimeZone) {
+        return startTime == null ? null
+                : new Date(SaltDates.fromLocalTime(startTime, masterTimeZone));
+    }
+
+    /**
+     * Gson adapter for the start time, reading it as local time. Start times that
+     * cannot be parsed, e.g. the empty string returned for job ids that do not encode
+     * a time, are ignored rather than failing the whole listing.
+     */
+    static class StartTimeAdapter extends TypeAdapter<Long> {
+
+        @Override
+        public void write(JsonWriter out, Long startTime) throws IOException {
+            if (startTime == null) {
+                out.nullValue();
+            } else {
+                out.value(SaltDates.formatJobStartTime(startTime));
+            }
+        }
+
+        @Override
+        public Long read(JsonReader in) throws IOException {
+            String value = JsonReaders.nextString(in);
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                return SaltDates.parseJobStartTime(value);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package com.suse.saltstack.netapi.datatypes;
+
+import com.suse.saltstack.netapi.Constants;
+import com.suse.saltstack.netapi.datatypes.target.Target;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single chunk of lowstate data, describing a call of a function through one of the
+ * salt clients (local, runner, wheel and their asynchronous variants).
+ */
+public class LowState {
+
+    private final String client;
+    private final String function;
+    private final Target target;
+    private final List<String> args;
+    private final Map<String, String> kwargs;
+
+    /**
+     * Constructor.
+     *
+     * @param client the client, see the CLIENT_* values in {@link Constants}
+     * @param function the function to call
+     * @param target the target, only used by the local clients
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     */
+    public LowState(String client, String function, Target target, List<String> args,
+            Map<String, String> kwargs) {
+        this.client = client;
+        this.function = function;
+        this.target = target;
+        this.args = args;
+        this.kwargs = kwargs;
+    }
+
+    /**
+     * Asynchronously execute a command on minions.
+     *
+     * @param target the target
+     * @param function the function to execute
+     * @param args list of non-keyword arguments
+     * @param kwargs map containing keyword arguments
+     * @return the lowstate chunk
+     */
+    public static LowState localAsync(Target target, String function, List<String> args,
+            Map<String, String> kwargs) {
+        return new LowState(Constants.CLIENT_LOCAL_ASYNC, function, target, args, kwargs);
+    }
+
+    /**
+     * Asynchronously call a runner function on the master, e.g. state.orchestrate.
+     *
+     * @param function the runner function
+     * @param kwargs map containing keyword arguments
+     * @return the lowstate chunk
+     */
+    public static LowState runnerAsync(String function, Map<String, String> kwargs) {
+        return new LowState(Constants.CLIENT_RUNNER_ASYNC, function, null, null, kwargs);
+    }
+
+    /**
+     * Asynchronously call a wheel function on the master, e.g. key.accept.
+     *
+     * @param function the wheel function
+     * @param kwargs map containing keyword arguments
+     * @return the lowstate chunk
+     */
+    public static LowState wheelAsync(String function, Map<String, String> kwargs) {
+        return new LowState(Constants.CLIENT_WHEEL_ASYNC, function, null, null, kwargs);
+    }
+
+    public String getClient() {
+        return client;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public Target getTarget() {
+        return target;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public Map<String, String> getKwargs() {
+        return kwargs;
+    }
+}
@@ -0,0 +1,30 @@
+package com.suse.saltstack.netapi.datatypes;
+
+import java.util.List;
+
+/**
+ * Representation of a job started through one of the asynchronous clients, with the
+ * tag of its events on the event bus and, for execution commands, the targeted
+ * minions.
+ */
+public class ScheduledJob {
+
+    private String jid;
+    private String tag;
+    private List<String> minions;
+
+    public String getJid() {
+        return jid;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * @return the targeted minions, null for runner and wheel jobs
+     */
+    public List<String> getMinions() {
+        return minions;
+    }
+}
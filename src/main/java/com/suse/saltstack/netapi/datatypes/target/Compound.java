@@ -0,0 +1,28 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target combining several matchers in a compound expression, e.g. 'G@os:SUSE and web*'.
+ */
+public class Compound implements Target {
+
+    private final String expression;
+
+    /**
+     * Constructor.
+     *
+     * @param expression the compound expression
+     */
+    public Compound(String expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    public String getTarget() {
+        return expression;
+    }
+
+    @Override
+    public String getType() {
+        return "compound";
+    }
+}
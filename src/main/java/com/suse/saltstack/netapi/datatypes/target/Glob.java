@@ -0,0 +1,28 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target matching minion ids against a shell-style glob.
+ */
+public class Glob implements Target {
+
+    private final String glob;
+
+    /**
+     * Constructor.
+     *
+     * @param glob the glob expression
+     */
+    public Glob(String glob) {
+        this.glob = glob;
+    }
+
+    @Override
+    public String getTarget() {
+        return glob;
+    }
+
+    @Override
+    public String getType() {
+        return "glob";
+    }
+}
@@ -0,0 +1,45 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target matching minions by the value of a grain.
+ */
+public class Grains implements Target {
+
+    private final String key;
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param key the grain name, nested keys are separated by ':'
+     * @param value the glob the grain value has to match
+     */
+    public Grains(String key, String value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * @return the grain name, nested keys are separated by ':'
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the glob the grain value has to match
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String getTarget() {
+        return key + ":" + value;
+    }
+
+    @Override
+    public String getType() {
+        return "grain";
+    }
+}
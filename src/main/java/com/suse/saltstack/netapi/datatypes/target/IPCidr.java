@@ -0,0 +1,28 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target matching minions by IP address or subnet in CIDR notation.
+ */
+public class IPCidr implements Target {
+
+    private final String expression;
+
+    /**
+     * Constructor.
+     *
+     * @param expression the IP address or subnet
+     */
+    public IPCidr(String expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    public String getTarget() {
+        return expression;
+    }
+
+    @Override
+    public String getType() {
+        return "ipcidr";
+    }
+}
@@ -0,0 +1,56 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Target matching an explicit list of minion ids.
+ */
+public class MinionList implements Target {
+
+    private final List<String> minions;
+
+    /**
+     * Constructor.
+     *
+     * @param minions the minion ids
+     */
+    public MinionList(List<String> minions) {
+        this.minions = Collections.unmodifiableList(new ArrayList<>(minions));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param minions the minion ids
+     */
+    public MinionList(String... minions) {
+        this(Arrays.asList(minions));
+    }
+
+    /**
+     * @return the minion ids
+     */
+    public List<String> getMinions() {
+        return minions;
+    }
+
+    @Override
+    public String getTarget() {
+        StringBuilder target = new StringBuilder();
+        for (String minion : minions) {
+            if (target.length() > 0) {
+                target.append(',');
+            }
+            target.append(minion);
+        }
+        return target.toString();
+    }
+
+    @Override
+    public String getType() {
+        return "list";
+    }
+}
@@ -0,0 +1,28 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target matching a nodegroup defined in the master configuration.
+ */
+public class NodeGroup implements Target {
+
+    private final String expression;
+
+    /**
+     * Constructor.
+     *
+     * @param expression the name of the nodegroup
+     */
+    public NodeGroup(String expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    public String getTarget() {
+        return expression;
+    }
+
+    @Override
+    public String getType() {
+        return "nodegroup";
+    }
+}
@@ -0,0 +1,28 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target matching minion ids against a perl-compatible regular expression.
+ */
+public class PCRE implements Target {
+
+    private final String expression;
+
+    /**
+     * Constructor.
+     *
+     * @param expression the regular expression
+     */
+    public PCRE(String expression) {
+        this.expression = expression;
+    }
+
+    @Override
+    public String getTarget() {
+        return expression;
+    }
+
+    @Override
+    public String getType() {
+        return "pcre";
+    }
+}
@@ -0,0 +1,45 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target matching minions by the value of a pillar key.
+ */
+public class Pillar implements Target {
+
+    private final String key;
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param key the pillar key, nested keys are separated by ':'
+     * @param value the glob the pillar value has to match
+     */
+    public Pillar(String key, String value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * @return the pillar key, nested keys are separated by ':'
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the glob the pillar value has to match
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String getTarget() {
+        return key + ":" + value;
+    }
+
+    @Override
+    public String getType() {
+        return "pillar";
+    }
+}
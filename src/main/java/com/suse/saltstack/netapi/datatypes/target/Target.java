@@ -0,0 +1,22 @@
+package com.suse.saltstack.netapi.datatypes.target;
+
+/**
+ * Target of an execution command, consisting of a target expression and the
+ * expression form telling the master how to match minions against it.
+ */
+public interface Target {
+
+    /**
+     * Returns the target expression as sent in the 'tgt' parameter.
+     *
+     * @return the target expression
+     */
+    String getTarget();
+
+    /**
+     * Returns the expression form as sent in the 'expr_form' parameter.
+     *
+     * @return the expression form
+     */
+    String getType();
+}
@@ -0,0 +1,59 @@
+package com.suse.saltstack.netapi.exception;
+
+import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.datatypes.target.MinionList;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exception to be thrown when some chunks of a command split into several requests
+ * failed. Holds what the other chunks returned, in particular the jobs that were
+ * started on the master and can still be tracked or cancelled.
+ */
+public class ChunkedCommandException extends SaltStackException {
+
+    private final Map<String, Object> result;
+    private final List<JobMinions> jobs;
+    private final Map<MinionList, SaltStackException> failures;
+
+    /**
+     * Constructor.
+     *
+     * @param result the merged results of the chunks that succeeded, when running
+     * @param jobs the jobs started by the chunks that succeeded, when starting
+     * @param failures the exceptions of the chunks that failed, keyed by chunk
+     */
+    public ChunkedCommandException(Map<String, Object> result, List<JobMinions> jobs,
+            Map<MinionList, SaltStackException> failures) {
+        super(failures.size() + " chunks failed, first failure: " +
+                failures.values().iterator().next().getMessage());
+        initCause(failures.values().iterator().next());
+        this.result = Collections.unmodifiableMap(result);
+        this.jobs = Collections.unmodifiableList(jobs);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return Map key: minion id, value: command result from that minion, for the
+     * chunks that succeeded
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    /**
+     * @return the jobs started by the chunks that succeeded
+     */
+    public List<JobMinions> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * @return the exceptions of the chunks that failed, keyed by chunk
+     */
+    public Map<MinionList, SaltStackException> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,17 @@
+package com.suse.saltstack.netapi.exception;
+
+/**
+ * Exception to be thrown when a request is rejected without being sent because the
+ * circuit breaker of its endpoint is open.
+ */
+public class CircuitOpenException extends SaltStackException {
+
+    /**
+     * Constructor expecting a custom message.
+     *
+     * @param message the message
+     */
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.suse.saltstack.netapi.exception;
+
+/**
+ * Exception to be thrown when the API answers a request with an unexpected HTTP
+ * status code.
+ */
+public class HttpStatusException extends SaltStackException {
+
+    private final int statusCode;
+
+    /**
+     * Constructor expecting the status code of the response.
+     *
+     * @param statusCode the status code
+     */
+    public HttpStatusException(int statusCode) {
+        super("Response code: " + statusCode);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return the status code of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return true for server errors (5xx), e.g. when the API is overloaded
+     */
+    public boolean isServerError() {
+        return statusCode >= 500 && statusCode < 600;
+    }
+}
@@ -0,0 +1,174 @@
+package com.suse.saltstack.netapi.parser;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map backed by an array of keys and an array of values, produced when
+ * parsing compact results. Entries keep the order of the parsed document.
+ * <p>
+ * Small maps are searched linearly, larger ones use an open addressing index of the
+ * array positions. Compared to the linked map nodes built by Gson this saves one
+ * object per entry.
+ */
+public final class CompactMap extends AbstractMap<String, Object> {
+
+    /** Maps up to this size are searched linearly */
+    private static final int LINEAR_MAX = 8;
+
+    /** The empty map */
+    static final CompactMap EMPTY = new CompactMap(new String[0], new Object[0], 0);
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int size;
+    private final int[] index;
+
+    /**
+     * Constructor taking ownership of the given arrays. Of duplicate keys the last
+     * value is kept, like in a map built by putting all entries in order.
+     *
+     * @param keys the keys
+     * @param values the values
+     * @param size the number of entries used in the arrays
+     */
+    CompactMap(String[] keys, Object[] values, int size) {
+        if (keys.length != size) {
+            keys = Arrays.copyOf(keys, size);
+            values = Arrays.copyOf(values, size);
+        }
+        int[] table = null;
+        int unique = 0;
+        if (size > LINEAR_MAX) {
+            table = new int[Integer.highestOneBit(size * 2 - 1) << 1];
+        }
+        for (int i = 0; i < size; i++) {
+            int existing = table != null ? insert(table, keys, unique, keys[i])
+                    : find(keys, unique, keys[i]);
+            if (existing >= 0) {
+                values[existing] = values[i];
+            } else {
+                keys[unique] = keys[i];
+                values[unique] = values[i];
+                unique++;
+            }
+        }
+        if (unique != size) {
+            keys = Arrays.copyOf(keys, unique);
+            values = Arrays.copyOf(values, unique);
+        }
+        this.keys = keys;
+        this.values = values;
+        this.size = unique;
+        this.index = table;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(keys[i], values[i]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (index == null) {
+            return find(keys, size, (String) key);
+        }
+        int mask = index.length - 1;
+        for (int slot = slot(key, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = index[slot] - 1;
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Linear search for a key in the first entries of an array.
+     */
+    private static int find(String[] keys, int count, String key) {
+        for (int i = 0; i < count; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the position of a new key to the index unless it is present already.
+     *
+     * @return the position of the existing key or -1 if the key was added
+     */
+    private static int insert(int[] table, String[] keys, int position, String key) {
+        int mask = table.length - 1;
+        int slot = slot(key, mask);
+        for (; table[slot] != 0; slot = (slot + 1) & mask) {
+            int i = table[slot] - 1;
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        table[slot] = position + 1;
+        return -1;
+    }
+
+    private static int slot(Object key, int mask) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,164 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adapter reading arbitrary JSON values into a compact representation: objects become
+ * {@link CompactMap}s, arrays become lists trimmed to their size and integral numbers
+ * become {@link Long}s instead of {@link Double}s. Keys and short string values are
+ * shared through a {@link StringPool}.
+ */
+class CompactValueAdapter extends TypeAdapter<Object> {
+
+    /** Longer string values are not pooled, they are unlikely to repeat */
+    private static final int MAX_POOLED_LENGTH = 64;
+
+    private final Gson gson;
+    private final StringPool pool;
+
+    /**
+     * Constructor.
+     *
+     * @param gson the Gson instance used to write values of other types
+     * @param pool the pool for keys and short string values
+     */
+    CompactValueAdapter(Gson gson, StringPool pool) {
+        this.gson = gson;
+        this.pool = pool;
+    }
+
+    @Override
+    public Object read(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(in);
+            case BEGIN_ARRAY:
+                ArrayList<Object> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    list.add(read(in));
+                }
+                in.endArray();
+                list.trimToSize();
+                return list;
+            case NUMBER:
+                return toNumber(in.nextString());
+            case STRING:
+                String value = in.nextString();
+                return value.length() <= MAX_POOLED_LENGTH ? pool.intern(value) : value;
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected token " + in.peek());
+        }
+    }
+
+    /**
+     * Reads a JSON object.
+     *
+     * @param in the reader
+     * @return the map containing the entries of the object
+     * @throws IOException if reading fails
+     */
+    CompactMap readObject(JsonReader in) throws IOException {
+        String[] keys = new String[4];
+        Object[] values = new Object[4];
+        int size = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = pool.intern(in.nextName());
+            values[size] = read(in);
+            size++;
+        }
+        in.endObject();
+        return size == 0 ? CompactMap.EMPTY : new CompactMap(keys, values, size);
+    }
+
+    /**
+     * Converts the text of a JSON number to a Long if it is integral and fits into a
+     * long, or to a Double otherwise.
+     */
+    static Number toNumber(String text) {
+        boolean integral = !text.isEmpty();
+        for (int i = 0; i < text.length() && integral; i++) {
+            char c = text.charAt(i);
+            integral = c >= '0' && c <= '9' || c == '-' && i == 0 && text.length() > 1;
+        }
+        if (integral) {
+            try {
+                return Long.valueOf(text);
+            } catch (NumberFormatException e) {
+                // Too large for a long
+            }
+        }
+        return Double.valueOf(text);
+    }
+
+    @Override
+    public void write(JsonWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof Map) {
+            out.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                write(out, entry.getValue());
+            }
+            out.endObject();
+        } else if (value instanceof List) {
+            out.beginArray();
+            for (Object element : (List<?>) value) {
+                write(out, element);
+            }
+            out.endArray();
+        } else {
+            @SuppressWarnings("unchecked")
+            TypeAdapter<Object> adapter = (TypeAdapter<Object>) gson.getAdapter(
+                    value.getClass());
+            adapter.write(out, value);
+        }
+    }
+
+    /**
+     * Adapter for {@link CompactMap}s, to be used where a JSON object is expected.
+     */
+    static class MapAdapter extends TypeAdapter<CompactMap> {
+
+        private final CompactValueAdapter values;
+
+        MapAdapter(CompactValueAdapter values) {
+            this.values = values;
+        }
+
+        @Override
+        public CompactMap read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return values.readObject(in);
+        }
+
+        @Override
+        public void write(JsonWriter out, CompactMap map) throws IOException {
+            values.write(out, map);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The default engine, using the {@link JsonReader} of Gson. Responses are read as
+ * UTF-8 as mandated for JSON, independent of the platform charset.
+ */
+public class GsonJsonEngine implements JsonEngine {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JsonReader newReader(InputStream inputStream) {
+        return new JsonReader(new BufferedReader(new InputStreamReader(inputStream,
+                StandardCharsets.UTF_8)));
+    }
+}
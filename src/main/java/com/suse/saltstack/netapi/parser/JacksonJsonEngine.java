@@ -0,0 +1,29 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser.Feature;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Engine using the streaming parser of Jackson, which decodes bytes directly instead
+ * of going through a Reader. Command results are still built by the Gson adapters, so
+ * the difference to the Gson engine is small, measure it on the actual responses
+ * before switching. Requires jackson-core on the classpath.
+ */
+public class JacksonJsonEngine implements JsonEngine {
+
+    // Python writes NaN and infinities, the lenient Gson reader accepts them too
+    private final JsonFactory factory = new JsonFactory()
+            .enable(Feature.ALLOW_NON_NUMERIC_NUMBERS);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JsonReader newReader(InputStream inputStream) throws IOException {
+        return new JacksonJsonReader(factory.createParser(inputStream));
+    }
+}
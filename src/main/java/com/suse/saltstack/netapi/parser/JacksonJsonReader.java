@@ -0,0 +1,265 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.fasterxml.jackson.core.JsonParser.NumberType;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A {@link JsonReader} reading the tokens of a Jackson streaming parser. Values are
+ * converted the same way the lenient Gson reader does: numbers can be read as strings
+ * and numeric strings as numbers.
+ */
+class JacksonJsonReader extends JsonReader {
+
+    private static final Reader UNREADABLE_READER = new Reader() {
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private final com.fasterxml.jackson.core.JsonParser parser;
+    private com.fasterxml.jackson.core.JsonToken token;
+    private boolean peeked;
+    private boolean started;
+
+    /**
+     * Constructor.
+     *
+     * @param parser the Jackson parser
+     */
+    JacksonJsonReader(com.fasterxml.jackson.core.JsonParser parser) {
+        super(UNREADABLE_READER);
+        this.parser = parser;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonToken next = peek();
+        return next != JsonToken.END_OBJECT && next != JsonToken.END_ARRAY
+                && next != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (!peeked) {
+            token = parser.nextToken();
+            peeked = true;
+        }
+        if (token == null) {
+            if (!started) {
+                // Like the Gson reader, fail on empty documents
+                throw new EOFException("End of input" + path());
+            }
+            return JsonToken.END_DOCUMENT;
+        }
+        started = true;
+        switch (token) {
+            case START_OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            case END_OBJECT:
+                return JsonToken.END_OBJECT;
+            case START_ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case END_ARRAY:
+                return JsonToken.END_ARRAY;
+            case FIELD_NAME:
+                return JsonToken.NAME;
+            case VALUE_STRING:
+                return JsonToken.STRING;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return JsonToken.NUMBER;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return JsonToken.BOOLEAN;
+            case VALUE_NULL:
+                return JsonToken.NULL;
+            default:
+                throw new MalformedJsonException("Unexpected token " + token + path());
+        }
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        return parser.getCurrentName();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonToken next = peek();
+        if (next != JsonToken.STRING && next != JsonToken.NUMBER) {
+            throw unexpected(JsonToken.STRING, next);
+        }
+        peeked = false;
+        return parser.getText();
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        expect(JsonToken.BOOLEAN);
+        return token == com.fasterxml.jackson.core.JsonToken.VALUE_TRUE;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        JsonToken next = peek();
+        double value;
+        if (next == JsonToken.NUMBER) {
+            value = parser.getDoubleValue();
+        } else if (next == JsonToken.STRING) {
+            value = Double.parseDouble(parser.getText());
+        } else {
+            throw unexpected(JsonToken.NUMBER, next);
+        }
+        if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new MalformedJsonException("JSON forbids NaN and infinities: " + value
+                    + path());
+        }
+        peeked = false;
+        return value;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        JsonToken next = peek();
+        if (next == JsonToken.NUMBER && isIntegral()) {
+            peeked = false;
+            return parser.getLongValue();
+        }
+        if (next != JsonToken.NUMBER && next != JsonToken.STRING) {
+            throw unexpected(JsonToken.NUMBER, next);
+        }
+        String text = parser.getText();
+        long value;
+        try {
+            value = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            double asDouble = Double.parseDouble(text);
+            value = (long) asDouble;
+            if (value != asDouble) {
+                throw new NumberFormatException("Expected a long but was " + text + path());
+            }
+        }
+        peeked = false;
+        return value;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        JsonToken next = peek();
+        if (next == JsonToken.NUMBER && isIntegral()
+                && parser.getNumberType() == NumberType.INT) {
+            peeked = false;
+            return parser.getIntValue();
+        }
+        if (next != JsonToken.NUMBER && next != JsonToken.STRING) {
+            throw unexpected(JsonToken.NUMBER, next);
+        }
+        String text = parser.getText();
+        int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            double asDouble = Double.parseDouble(text);
+            value = (int) asDouble;
+            if (value != asDouble) {
+                throw new NumberFormatException("Expected an int but was " + text + path());
+            }
+        }
+        peeked = false;
+        return value;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        JsonToken next = peek();
+        if (next == JsonToken.BEGIN_OBJECT || next == JsonToken.BEGIN_ARRAY) {
+            parser.skipChildren();
+        }
+        peeked = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    @Override
+    public String getPath() {
+        StringBuilder path = new StringBuilder();
+        for (JsonStreamContext context = parser.getParsingContext(); context != null;
+                context = context.getParent()) {
+            if (context.inArray()) {
+                path.insert(0, "[" + Math.max(context.getCurrentIndex(), 0) + "]");
+            } else if (context.inObject() && context.getCurrentName() != null) {
+                path.insert(0, "." + context.getCurrentName());
+            }
+        }
+        return path.insert(0, "$").toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + path();
+    }
+
+    private boolean isIntegral() {
+        return token == com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_INT;
+    }
+
+    private void expect(JsonToken expected) throws IOException {
+        JsonToken next = peek();
+        if (next != expected) {
+            throw unexpected(expected, next);
+        }
+        peeked = false;
+    }
+
+    private IllegalStateException unexpected(JsonToken expected, JsonToken actual) {
+        return new IllegalStateException("Expected " + expected + " but was " + actual
+                + path());
+    }
+
+    private String path() {
+        return " at line " + parser.getCurrentLocation().getLineNr() + " column "
+                + parser.getCurrentLocation().getColumnNr() + " path " + getPath();
+    }
+}
@@ -0,0 +1,69 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.suse.saltstack.netapi.datatypes.Job;
+import com.suse.saltstack.netapi.results.JobListener;
+
+import java.io.IOException;
+
+/**
+ * Parser for job listings. Instead of building a map of all jobs, every job is parsed
+ * on its own and handed to a {@link JobListener} right away, so memory use does not
+ * depend on the size of the listing. Jobs the listener does not accept are skipped
+ * without being built and reading stops as soon as the listener asks for it.
+ */
+public class JobStreamParser extends JsonParser<Integer> {
+
+    private final JobListener listener;
+
+    /**
+     * Constructor.
+     *
+     * @param listener the listener receiving the jobs
+     */
+    public JobStreamParser(JobListener listener) {
+        super(new TypeToken<Integer>(){});
+        this.listener = listener;
+    }
+
+    /**
+     * Parses the response and passes every accepted job to the listener.
+     *
+     * @param reader the reader to parse from.
+     * @throws IOException if reading fails.
+     * @return The number of jobs passed to the listener.
+     */
+    @Override
+    protected Integer parse(JsonReader reader) throws IOException {
+        int jobs = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"return".equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String jid = reader.nextName();
+                    if (!listener.accept(jid)) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    Job job = getGson().fromJson(reader, Job.class);
+                    jobs++;
+                    if (!listener.onJob(jid, job)) {
+                        // The rest of the response is discarded with the connection
+                        return jobs;
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return jobs;
+    }
+}
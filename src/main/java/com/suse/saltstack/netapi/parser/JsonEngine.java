@@ -0,0 +1,23 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Engine tokenizing JSON responses. The tokens are exposed through a {@link JsonReader}
+ * so the same type adapters and deserializers bind the values whatever engine is
+ * used.
+ */
+public interface JsonEngine {
+
+    /**
+     * Creates a reader for a response.
+     *
+     * @param inputStream the response
+     * @return the reader
+     * @throws IOException if the reader cannot be created
+     */
+    JsonReader newReader(InputStream inputStream) throws IOException;
+}
@@ -2,26 +2,33 @@ package com.suse.saltstack.netapi.parser;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import com.suse.saltstack.netapi.datatypes.cherrypy.Arguments;
 import com.suse.saltstack.netapi.datatypes.Job;
 import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.datatypes.ScheduledJob;
 import com.suse.saltstack.netapi.datatypes.Token;
 import com.suse.saltstack.netapi.datatypes.cherrypy.Applications;
 import com.suse.saltstack.netapi.datatypes.cherrypy.HttpServer;
 import com.suse.saltstack.netapi.datatypes.cherrypy.Stats;
+import com.suse.saltstack.netapi.results.PingResult;
 import com.suse.saltstack.netapi.results.Result;
+import com.suse.saltstack.netapi.results.StateRun;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +40,15 @@ import java.util.Map;
  */
 public class JsonParser<T> {
 
+    /** Gson instance shared by all parsers, it caches the adapters of all types. */
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new StringMapAdapterFactory())
+            .registerTypeAdapterFactory(new AdapterFactory())
+            .create();
+
+    /** Pool of the keys and short values of compact results */
+    static final StringPool STRING_POOL = new StringPool(16384);
+
     public static final JsonParser<Result<String>> STRING =
             new JsonParser<>(new TypeToken<Result<String>>(){});
     public static final JsonParser<Result<List<Token>>> TOKEN =
@@ -43,11 +59,51 @@ public class JsonParser<T> {
             new JsonParser<>(new TypeToken<Result<List<Map<String, Job>>>>(){});
     public static final JsonParser<Result<List<Map<String, Object>>>> RETVALS =
             new JsonParser<>(new TypeToken<Result<List<Map<String, Object>>>>(){});
+    /**
+     * Parser for command results like {@link #RETVALS}, producing a compact result
+     * model: objects are read into {@link CompactMap}s and integral numbers into
+     * {@link Long}s. Keys and short string values, like minion ids, state ids and
+     * comments, share their instances through a bounded {@link StringPool}.
+     */
+    public static final JsonParser<Result<List<Map<String, Object>>>> COMPACT_RETVALS =
+            newCompactParser(new TypeToken<Result<List<CompactMap>>>(){});
+    /**
+     * Parser for the results of test.ping, telling which minions responded.
+     */
+    public static final JsonParser<Result<List<PingResult>>> PING =
+            new JsonParser<>(new TypeToken<Result<List<PingResult>>>(){});
+    /**
+     * Parser for the results of cmd.run, the output of the command for each minion.
+     */
+    public static final JsonParser<Result<List<Map<String, String>>>> CMD_RUN =
+            new JsonParser<>(new TypeToken<Result<List<Map<String, String>>>>(){});
+    /**
+     * Parser for the results of grains.item and grains.items, the grains of each minion
+     * as a compact map like in {@link #COMPACT_RETVALS}.
+     */
+    public static final JsonParser<Result<List<Map<String, Map<String, Object>>>>> GRAINS =
+            newCompactParser(new TypeToken<Result<List<Map<String, CompactMap>>>>(){});
+    /**
+     * Parser for the results of state.apply, state.sls and state.highstate, the state
+     * run of each minion.
+     */
+    public static final JsonParser<Result<List<Map<String, StateRun>>>> STATE_APPLY =
+            new JsonParser<>(new TypeToken<Result<List<Map<String, StateRun>>>>(){});
+    public static final JsonParser<Result<List<ScheduledJob>>> SCHEDULED_JOBS =
+            new JsonParser<>(new TypeToken<Result<List<ScheduledJob>>>(){});
     public static final JsonParser<Stats> STATS =
             new JsonParser<>(new TypeToken<Stats>(){});
 
-    private final TypeToken<T> type;
-    private final Gson gson;
+    private static final JsonEngine DEFAULT_ENGINE = new GsonJsonEngine();
+
+    /** Minimal responses of the predefined parsers used to warm them up. */
+    private static final String WARM_UP_RESULT = "{\"return\": %s}";
+    private static final String WARM_UP_JOB = "{\"Function\": \"test.ping\", "
+            + "\"Arguments\": [\"arg\", {\"__kwarg__\": true, \"key\": 1}], "
+            + "\"StartTime\": \"2015, Feb 11 10:55:24.392307\", "
+            + "\"Target\": \"*\", \"Target-type\": \"glob\", \"User\": \"root\"}";
+
+    private final TypeAdapter<T> adapter;
 
     /**
      * Created a new JsonParser for the given type.
@@ -55,12 +111,82 @@ public class JsonParser<T> {
      * @param type A TypeToken describing the type this parser produces.
      */
     public JsonParser(TypeToken<T> type) {
-        this.type = type;
-        this.gson = new GsonBuilder()
-                .registerTypeAdapter(Date.class, new SaltStackDateDeserializer())
-                .registerTypeAdapter(Stats.class, new StatsDeserializer())
-                .registerTypeAdapter(Arguments.class, new ArgumentsDeserializer())
-                .create();
+        this.adapter = GSON.getAdapter(type);
+    }
+
+    /**
+     * Creates a parser producing the same type as a given parser, for parsers
+     * decorating another one.
+     *
+     * @param parser the parser whose type is produced
+     */
+    protected JsonParser(JsonParser<T> parser) {
+        this.adapter = parser.adapter;
+    }
+
+    /**
+     * Returns the Gson instance configured for parsing SaltStack responses.
+     *
+     * @return the Gson instance
+     */
+    protected Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Prepares the predefined parsers for their first use by parsing a minimal response
+     * with each of them. This loads all classes involved in parsing and creates the
+     * type adapters, call it during startup so the first real request does not pay for
+     * it. Calling this method is optional.
+     */
+    public static void warmUp() {
+        warmUp(STRING, "\"true\"");
+        warmUp(TOKEN, "[{\"perms\": [\".*\"], \"start\": 1423573511.380968, "
+                + "\"token\": \"token\", \"expire\": 1423616711.380968, "
+                + "\"user\": \"user\", \"eauth\": \"pam\"}]");
+        warmUp(JOB_MINIONS, "[{\"jid\": \"20150211105524392307\", "
+                + "\"minions\": [\"minion\"]}]");
+        warmUp(JOBS, "[{\"20150211105524392307\": " + WARM_UP_JOB + "}]");
+        warmUp(RETVALS, "[{\"minion\": {\"key\": [1, \"value\", true, null]}}]");
+        warmUp(COMPACT_RETVALS, "[{\"minion\": {\"key\": [1, \"value\", true, null]}}]");
+        warmUp(PING, "[{\"minion\": true}]");
+        warmUp(CMD_RUN, "[{\"minion\": \"output\"}]");
+        warmUp(GRAINS, "[{\"minion\": {\"os\": \"SUSE\"}}]");
+        warmUp(STATE_APPLY, "[{\"minion\": {\"file_|-id_|-name_|-managed\": "
+                + "{\"result\": true, \"changes\": {}, \"__run_num__\": 0}}}]");
+        warmUp(SCHEDULED_JOBS, "[{\"jid\": \"20150211105524392307\", "
+                + "\"tag\": \"salt/job/20150211105524392307\", "
+                + "\"minions\": [\"minion\"]}]");
+        STATS.parse(toStream("{\"CherryPy Applications\": {\"Requests\": {\"0\": "
+                + "{\"Start Time\": 1423573511.38}}}, \"CherryPy HTTPServer 1\": {}}"));
+    }
+
+    /**
+     * Creates a parser for a type containing compact maps. The results are declared
+     * with the Map interface in place of {@link CompactMap}, compact maps are only read
+     * through it.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> JsonParser<T> newCompactParser(TypeToken<?> type) {
+        return new JsonParser<>((TypeToken<T>) type);
+    }
+
+    private static void warmUp(JsonParser<?> parser, String value) {
+        parser.parse(toStream(String.format(WARM_UP_RESULT, value)));
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the given engine, or the Gson engine if it is null.
+     *
+     * @param engine the engine or null
+     * @return the engine to use
+     */
+    protected static JsonEngine orDefault(JsonEngine engine) {
+        return engine != null ? engine : DEFAULT_ENGINE;
     }
 
     /**
@@ -69,95 +195,261 @@ public class JsonParser<T> {
      * @return The parsed value.
      */
     public T parse(InputStream inputStream) {
-        Reader inputStreamReader = new InputStreamReader(inputStream);
-        Reader streamReader = new BufferedReader(inputStreamReader);
+        return parse(inputStream, DEFAULT_ENGINE);
+    }
 
+    /**
+     * Parses a Json response using the given engine.
+     * @param inputStream result stream to parse.
+     * @param engine the engine reading the response, null for the Gson engine.
+     * @return The parsed value.
+     */
+    public T parse(InputStream inputStream, JsonEngine engine) {
+        try {
+            return parse(orDefault(engine).newReader(inputStream));
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Parses a Json response from a reader. Subclasses reading the response on their
+     * own override this method.
+     * @param reader the reader to parse from.
+     * @return The parsed value.
+     * @throws IOException if reading fails.
+     */
+    protected T parse(JsonReader reader) throws IOException {
         // Parse result type from the returned JSON
-        return gson.fromJson(streamReader, type.getType());
+        T result = read(reader);
+        if (result != null && reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonIOException("JSON document was not fully consumed.");
+        }
+        return result;
+    }
+
+    /**
+     * Reads a value with the cached adapter. Like {@link Gson#fromJson(JsonReader, Type)}
+     * the reader is lenient while reading and an empty document yields null.
+     */
+    private T read(JsonReader reader) {
+        boolean empty = true;
+        boolean lenient = reader.isLenient();
+        reader.setLenient(true);
+        try {
+            reader.peek();
+            empty = false;
+            return adapter.read(reader);
+        } catch (EOFException e) {
+            // Empty documents are returned as null
+            if (empty) {
+                return null;
+            }
+            throw new JsonSyntaxException(e);
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        } finally {
+            reader.setLenient(lenient);
+        }
+    }
+
+    /**
+     * Creates the adapters for the types that are represented differently by the API.
+     */
+    private static class AdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> rawType = type.getRawType();
+            if (rawType == Date.class) {
+                return (TypeAdapter<T>) new DateAdapter();
+            } else if (rawType == Stats.class) {
+                return (TypeAdapter<T>) new StatsAdapter(
+                        gson.getAdapter(Applications.class),
+                        gson.getAdapter(HttpServer.class));
+            } else if (rawType == Arguments.class) {
+                return (TypeAdapter<T>) new ArgumentsAdapter(gson.getAdapter(Object.class));
+            } else if (rawType == CompactMap.class) {
+                return (TypeAdapter<T>) new CompactValueAdapter.MapAdapter(
+                        new CompactValueAdapter(gson, STRING_POOL));
+            }
+            return null;
+        }
     }
 
     /**
-     * Deserializer for date representation received from the API
+     * Adapter for date representation received from the API
      * (which represents it as a (floating) number of seconds since the Epoch).
      */
-    private class SaltStackDateDeserializer implements JsonDeserializer<Date> {
+    private static class DateAdapter extends TypeAdapter<Date> {
+
+        @Override
+        public void write(JsonWriter out, Date date) throws IOException {
+            if (date == null) {
+                out.nullValue();
+            } else {
+                out.value(date.getTime() / 1000.0);
+            }
+        }
+
         @Override
-        public Date deserialize(JsonElement jsonElement, Type type,
-                JsonDeserializationContext jsonDeserializationContext)
-                throws JsonParseException {
+        public Date read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
             try {
-                double dateMiliSecs = jsonElement.getAsDouble() * 1000;
-                return new Date((long) dateMiliSecs);
+                return new Date(SaltDates.parseEpochMillis(in.nextString()));
             } catch (NumberFormatException e) {
-                throw new JsonParseException(e);
+                throw new JsonSyntaxException(e);
             }
         }
     }
 
     /**
-     * Deserializer for the Stats object received from the API.
+     * Adapter for the Stats object received from the API.
      */
-    private class StatsDeserializer implements JsonDeserializer<Stats> {
+    private static class StatsAdapter extends TypeAdapter<Stats> {
 
         private static final String CP_APPLICATIONS = "CherryPy Applications";
         private static final String CP_SERVER_PREFIX = "CherryPy HTTPServer ";
 
+        private final TypeAdapter<Applications> applications;
+        private final TypeAdapter<HttpServer> servers;
+
+        StatsAdapter(TypeAdapter<Applications> applications,
+                TypeAdapter<HttpServer> servers) {
+            this.applications = applications;
+            this.servers = servers;
+        }
+
         @Override
-        public Stats deserialize(JsonElement jsonElement, Type type,
-                JsonDeserializationContext jsonDeserializationContext)
-                throws JsonParseException {
-            try {
-                JsonObject stats = jsonElement.getAsJsonObject();
-                Applications app = gson.fromJson(stats.get(CP_APPLICATIONS),
-                        Applications.class);
-                HttpServer server = null;
-                for (Map.Entry<String, JsonElement> entry : stats.entrySet()) {
-                    String key = entry.getKey();
-                    if (key.startsWith(CP_SERVER_PREFIX)) {
-                        server = gson.fromJson(entry.getValue(), HttpServer.class);
-                        break;
-                    }
+        public void write(JsonWriter out, Stats stats) throws IOException {
+            if (stats == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name(CP_APPLICATIONS);
+            applications.write(out, stats.getApplications());
+            if (stats.getHttpServer() != null) {
+                out.name(CP_SERVER_PREFIX + stats.getHttpServer().getBindAddress());
+                servers.write(out, stats.getHttpServer());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Stats read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Applications app = null;
+            HttpServer server = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (CP_APPLICATIONS.equals(key)) {
+                    app = applications.read(in);
+                } else if (server == null && key.startsWith(CP_SERVER_PREFIX)) {
+                    server = servers.read(in);
+                } else {
+                    in.skipValue();
                 }
-                return new Stats(app, server);
-            } catch (Exception e) {
-                throw new JsonParseException(e);
             }
+            in.endObject();
+            return new Stats(app, server);
         }
     }
 
     /**
-     * Deserializer for Arguments class.
+     * Adapter for Arguments class.
      * Breaks the incoming arguments into args and kwargs parts
      * and fills a new Arguments instance.
      */
-    private class ArgumentsDeserializer implements JsonDeserializer<Arguments> {
-        @Override
-        public Arguments deserialize(JsonElement json, Type typeOfT,
-                JsonDeserializationContext context) throws JsonParseException {
-            Arguments result = new Arguments();
+    private static class ArgumentsAdapter extends TypeAdapter<Arguments> {
+
+        private static final String KWARG_MARKER = "__kwarg__";
+
+        private final TypeAdapter<Object> objects;
 
-            if (json != null && json.isJsonArray()) {
-                for (JsonElement jsonElement : json.getAsJsonArray()) {
-                    fillArgs(result, jsonElement);
+        ArgumentsAdapter(TypeAdapter<Object> objects) {
+            this.objects = objects;
+        }
+
+        @Override
+        public void write(JsonWriter out, Arguments arguments) throws IOException {
+            if (arguments == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (Object arg : arguments.getArgs()) {
+                objects.write(out, arg);
+            }
+            if (!arguments.getKwargs().isEmpty()) {
+                out.beginObject();
+                out.name(KWARG_MARKER).value(true);
+                for (Map.Entry<String, Object> kwarg : arguments.getKwargs().entrySet()) {
+                    out.name(kwarg.getKey());
+                    objects.write(out, kwarg.getValue());
                 }
+                out.endObject();
             }
+            out.endArray();
+        }
 
+        @Override
+        public Arguments read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Arguments result = new Arguments();
+            if (token != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                return result;
+            }
+            in.beginArray();
+            while (in.hasNext()) {
+                switch (in.peek()) {
+                    case STRING:
+                    case NUMBER:
+                    case BOOLEAN:
+                        result.getArgs().add(objects.read(in));
+                        break;
+                    case BEGIN_OBJECT:
+                        fillKwargs(result, in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endArray();
             return result;
         }
 
-        private void fillArgs(Arguments result, JsonElement jsonElement) {
-            if (jsonElement.isJsonPrimitive()) {
-                result.getArgs().add(gson.fromJson(jsonElement, Object.class));
-            } else if (jsonElement.isJsonObject()) {
-                for (Map.Entry<String, JsonElement> kwItem : jsonElement
-                        .getAsJsonObject().entrySet()) {
-                    if (!"__kwarg__".equals(kwItem.getKey())) {
-                        result.getKwargs().put(kwItem.getKey(),
-                                gson.fromJson(kwItem.getValue(),
-                                Object.class));
-                    }
+        private void fillKwargs(Arguments result, JsonReader in) throws IOException {
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (KWARG_MARKER.equals(key)) {
+                    in.skipValue();
+                } else {
+                    result.getKwargs().put(key, objects.read(in));
                 }
             }
+            in.endObject();
         }
     }
 }
@@ -0,0 +1,125 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Helpers for reading values from a {@link JsonReader} the same way Gson binds them to
+ * fields: null is read as the default value of primitives, strings are accepted for
+ * numbers and booleans and vice versa.
+ */
+public final class JsonReaders {
+
+    private JsonReaders() {
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param in the reader
+     * @return the string or null
+     * @throws IOException if reading fails
+     */
+    public static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        } else if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads an int.
+     *
+     * @param in the reader
+     * @return the value or 0 for null
+     * @throws IOException if reading fails
+     */
+    public static int nextInt(JsonReader in) throws IOException {
+        Integer value = nextInteger(in);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Reads an Integer.
+     *
+     * @param in the reader
+     * @return the value or null
+     * @throws IOException if reading fails
+     */
+    public static Integer nextInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Reads a double.
+     *
+     * @param in the reader
+     * @return the value or 0 for null
+     * @throws IOException if reading fails
+     */
+    public static double nextDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+
+    /**
+     * Reads a boolean.
+     *
+     * @param in the reader
+     * @return the value or false for null
+     * @throws IOException if reading fails
+     */
+    public static boolean nextBoolean(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        } else if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Reads a duration in milliseconds as returned for states, either a number or, by
+     * older Salt versions, a string with a unit like "12.5 ms".
+     *
+     * @param in the reader
+     * @return the duration or 0 for null or unparseable values
+     * @throws IOException if reading fails
+     */
+    public static double nextDuration(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.STRING) {
+            return nextDouble(in);
+        }
+        String value = in.nextString().trim();
+        int end = 0;
+        while (end < value.length() && (Character.isDigit(value.charAt(end))
+                || value.charAt(end) == '.')) {
+            end++;
+        }
+        try {
+            return end > 0 ? Double.parseDouble(value.substring(0, end)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
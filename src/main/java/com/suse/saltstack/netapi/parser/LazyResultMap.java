@@ -0,0 +1,178 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map of minion ids to command results that keeps the raw bytes of the
+ * response and decodes the result of a minion the first time it is accessed. Only the
+ * minion ids are decoded when the map is created, looking at a few minions of a large
+ * result does not pay for decoding all of them.
+ * <p>
+ * The result of a minion is checked for syntax errors when it is decoded only, a
+ * {@link JsonSyntaxException} is thrown by the method accessing it then. Decoded
+ * results are kept, the map is safe for use by multiple threads. Of duplicate minion
+ * ids the last entry is kept.
+ */
+public final class LazyResultMap extends AbstractMap<String, Object> {
+
+    /** Marks results that have not been decoded yet */
+    private static final Object NOT_DECODED = new Object();
+
+    private final ResultScanner.Entries entries;
+    private final JsonEngine engine;
+    private final TypeAdapter<Object> adapter;
+
+    /** Key: minion id, value: index of the entry */
+    private final CompactMap positions;
+    private final Object[] values;
+
+    /**
+     * Constructor.
+     *
+     * @param entries the entries of the response
+     * @param engine the engine to decode the results with
+     * @param adapter the adapter to decode the results with
+     * @param pool the pool for the minion ids or null
+     */
+    LazyResultMap(ResultScanner.Entries entries, JsonEngine engine,
+            TypeAdapter<Object> adapter, StringPool pool) {
+        this.entries = entries;
+        this.engine = engine;
+        this.adapter = adapter;
+
+        int size = entries.size();
+        String[] keys = new String[size];
+        Object[] indexes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            String key = decodeKey(i);
+            keys[i] = pool != null ? pool.intern(key) : key;
+            indexes[i] = i;
+        }
+        this.positions = new CompactMap(keys, indexes, size);
+        this.values = new Object[size];
+        Arrays.fill(values, NOT_DECODED);
+    }
+
+    @Override
+    public int size() {
+        return positions.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return positions.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        Integer i = (Integer) positions.get(key);
+        return i != null ? getValue(i) : null;
+    }
+
+    /**
+     * @return the number of bytes of the response kept by this map
+     */
+    public int getBufferSize() {
+        return entries.getJson().length;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return positions.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                final Iterator<Map.Entry<String, Object>> iterator =
+                        positions.entrySet().iterator();
+                return new Iterator<Map.Entry<String, Object>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!iterator.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<String, Object> next = iterator.next();
+                        Object value = getValue((Integer) next.getValue());
+                        return new SimpleImmutableEntry<>(next.getKey(), value);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the result of an entry, decoding it if it is accessed the first time.
+     */
+    private synchronized Object getValue(int i) {
+        Object value = values[i];
+        if (value == NOT_DECODED) {
+            int start = entries.getValueStart(i);
+            value = read(start, entries.getValueEnd(i) - start, adapter);
+            values[i] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a minion id. Ids without escape sequences are decoded directly, the
+     * others are read as a JSON string.
+     */
+    private String decodeKey(int i) {
+        byte[] json = entries.getJson();
+        int start = entries.getKeyStart(i);
+        int end = start + 1;
+        while (json[end] != '"') {
+            if (json[end] == '\\') {
+                return (String) read(start, entries.getValueStart(i) - start, null);
+            }
+            end++;
+        }
+        return new String(json, start + 1, end - start - 1, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a single value from a range of the response, with the given adapter or as
+     * a string if the adapter is null.
+     */
+    private Object read(int offset, int length, TypeAdapter<Object> valueAdapter) {
+        ByteArrayInputStream in = new ByteArrayInputStream(entries.getJson(), offset,
+                length);
+        try {
+            JsonReader reader = engine.newReader(in);
+            reader.setLenient(true);
+            return valueAdapter != null ? valueAdapter.read(reader) : reader.nextString();
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.suse.saltstack.netapi.results.Result;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser for command results that returns a {@link LazyResultMap}, decoding the result
+ * of a minion only when it is accessed. The response is buffered and scanned for the
+ * entries of the minions with {@link ResultScanner}, responses that do not have the
+ * expected layout are decoded completely like by {@link JsonParser#RETVALS}.
+ */
+public class LazyResultParser extends JsonParser<Result<List<Map<String, Object>>>> {
+
+    private final boolean compact;
+    private final TypeAdapter<Object> values;
+
+    /**
+     * Constructor.
+     *
+     * @param compact whether to decode the results into the compact result model of
+     * {@link JsonParser#COMPACT_RETVALS}
+     */
+    public LazyResultParser(boolean compact) {
+        super(new TypeToken<Result<List<Map<String, Object>>>>(){});
+        this.compact = compact;
+        this.values = compact ? new CompactValueAdapter(getGson(), STRING_POOL)
+                : getGson().getAdapter(Object.class);
+    }
+
+    /**
+     * Parses a command result into a map decoding the results of the minions on
+     * access.
+     *
+     * @param inputStream result stream to parse.
+     * @param engine the engine reading the response, null for the Gson engine.
+     * @return The parsed value.
+     */
+    @Override
+    public Result<List<Map<String, Object>>> parse(InputStream inputStream,
+            JsonEngine engine) {
+        engine = orDefault(engine);
+        // The buffer is kept by the map, drop the unused capacity
+        byte[] json = ResponseBuffer.read(inputStream).toByteArray();
+        ResultScanner.Entries entries = ResultScanner.scan(json, json.length);
+        if (entries == null) {
+            JsonParser<Result<List<Map<String, Object>>>> eager =
+                    compact ? COMPACT_RETVALS : RETVALS;
+            return eager.parse(new ByteArrayInputStream(json), engine);
+        }
+
+        List<Map<String, Object>> list = new ArrayList<>(1);
+        list.add(new LazyResultMap(entries, engine, values, compact ? STRING_POOL : null));
+        return new Result<>(list);
+    }
+}
@@ -0,0 +1,188 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import com.suse.saltstack.netapi.results.Result;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parser for command results that decodes the results of the minions in parallel.
+ * <p>
+ * The response is buffered and scanned for the boundaries of the minion entries with
+ * {@link ResultScanner}. The entries are then split into chunks of similar size that
+ * are decoded on a {@link ForkJoinPool} with the same engine and adapters as
+ * {@link JsonParser#RETVALS}, or {@link JsonParser#COMPACT_RETVALS} for compact
+ * results, and assembled into one map in the order of the response. Small responses
+ * and responses that do not have the expected layout are parsed on the calling thread.
+ */
+public class ParallelResultParser extends JsonParser<Result<List<Map<String, Object>>>> {
+
+    /** Smaller responses are not worth splitting */
+    private static final int MIN_PARALLEL_BYTES = 1 << 20;
+
+    /** Minimum size of a chunk */
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+
+    /** Number of chunks per thread, to balance minions of different size */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final byte[] OBJECT_START = "{".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OBJECT_END = "}".getBytes(StandardCharsets.UTF_8);
+
+    private final ForkJoinPool pool;
+    private final boolean compact;
+    private final TypeAdapter<Object> values;
+
+    /**
+     * Constructor.
+     *
+     * @param pool the pool decoding the chunks
+     * @param compact whether to produce the compact result model of
+     * {@link JsonParser#COMPACT_RETVALS}
+     */
+    public ParallelResultParser(ForkJoinPool pool, boolean compact) {
+        super(new TypeToken<Result<List<Map<String, Object>>>>(){});
+        this.pool = pool;
+        this.compact = compact;
+        this.values = compact ? new CompactValueAdapter(getGson(), STRING_POOL)
+                : getGson().getAdapter(Object.class);
+    }
+
+    /**
+     * Parses a command result, decoding the minions in parallel if it is large.
+     *
+     * @param inputStream result stream to parse.
+     * @param engine the engine reading the response, null for the Gson engine.
+     * @return The parsed value.
+     */
+    @Override
+    public Result<List<Map<String, Object>>> parse(InputStream inputStream,
+            JsonEngine engine) {
+        engine = orDefault(engine);
+        ResponseBuffer buffer = ResponseBuffer.read(inputStream);
+        byte[] json = buffer.getBytes();
+        int length = buffer.size();
+
+        ResultScanner.Entries entries = length < MIN_PARALLEL_BYTES ? null
+                : ResultScanner.scan(json, length);
+        if (entries == null || entries.size() < 2) {
+            JsonParser<Result<List<Map<String, Object>>>> sequential =
+                    compact ? COMPACT_RETVALS : RETVALS;
+            return sequential.parse(new ByteArrayInputStream(json, 0, length), engine);
+        }
+
+        String[] keys = new String[entries.size()];
+        Object[] parsed = new Object[entries.size()];
+        decode(entries, keys, parsed, engine);
+
+        List<Map<String, Object>> list = new ArrayList<>(1);
+        list.add(toMap(keys, parsed));
+        return new Result<>(list);
+    }
+
+    /**
+     * Decodes all entries in chunks on the pool.
+     */
+    private void decode(final ResultScanner.Entries entries, final String[] keys,
+            final Object[] parsed, final JsonEngine engine) {
+        int count = entries.size();
+        long total = entries.getValueEnd(count - 1) - entries.getKeyStart(0);
+        long chunkBytes = Math.max(MIN_CHUNK_BYTES,
+                total / (pool.getParallelism() * CHUNKS_PER_THREAD));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            boolean last = i == count - 1;
+            if (last || entries.getValueEnd(i) - entries.getKeyStart(from) >= chunkBytes) {
+                final int start = from;
+                final int end = i + 1;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        // Checked exceptions would be wrapped by the pool
+                        try {
+                            decode(entries, start, end, keys, parsed, engine);
+                        } catch (MalformedJsonException e) {
+                            throw new JsonSyntaxException(e);
+                        } catch (IOException e) {
+                            throw new JsonIOException(e);
+                        }
+                        return null;
+                    }
+                });
+                from = end;
+            }
+        }
+
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JsonIOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JsonIOException(cause);
+        }
+    }
+
+    /**
+     * Decodes the entries of a chunk by reading them as the members of an object.
+     */
+    private void decode(ResultScanner.Entries entries, int start, int end,
+            String[] keys, Object[] parsed, JsonEngine engine) throws IOException {
+        int offset = entries.getKeyStart(start);
+        int length = entries.getValueEnd(end - 1) - offset;
+        InputStream members = new ByteArrayInputStream(entries.getJson(), offset, length);
+        InputStream chunk = new SequenceInputStream(new ByteArrayInputStream(OBJECT_START),
+                new SequenceInputStream(members, new ByteArrayInputStream(OBJECT_END)));
+        JsonReader reader = engine.newReader(chunk);
+        reader.setLenient(true);
+        try {
+            reader.beginObject();
+            for (int i = start; i < end; i++) {
+                String key = reader.nextName();
+                keys[i] = compact ? STRING_POOL.intern(key) : key;
+                parsed[i] = values.read(reader);
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private Map<String, Object> toMap(String[] keys, Object[] parsed) {
+        if (compact) {
+            return new CompactMap(keys, parsed, keys.length);
+        }
+        Map<String, Object> map = new LinkedTreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (map.put(keys[i], parsed[i]) != null) {
+                throw new JsonSyntaxException("duplicate key: " + keys[i]);
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,48 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.JsonIOException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Buffer holding a complete response for parsers that scan it before decoding. The
+ * bytes are accessed without copying them.
+ */
+class ResponseBuffer extends ByteArrayOutputStream {
+
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    private ResponseBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    /**
+     * Reads a stream until its end.
+     *
+     * @param inputStream the stream
+     * @return the buffer
+     * @throws JsonIOException if reading fails
+     */
+    static ResponseBuffer read(InputStream inputStream) {
+        ResponseBuffer buffer = new ResponseBuffer();
+        byte[] chunk = new byte[INITIAL_SIZE];
+        try {
+            int n;
+            while ((n = inputStream.read(chunk)) != -1) {
+                buffer.write(chunk, 0, n);
+            }
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return the internal array, of which the first {@link #size()} bytes are used
+     */
+    byte[] getBytes() {
+        return buf;
+    }
+}
@@ -0,0 +1,267 @@
+package com.suse.saltstack.netapi.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Locates the entries of a command result in the raw bytes of a response without
+ * decoding it. Command results are returned as {"return": [{"minion": value, ...}]},
+ * the scanner finds where the key and the value of every minion start and end in the
+ * first element of the return list so the entries can be decoded independently.
+ * <p>
+ * The scan only tracks strings and nesting, it does not validate the document. Bytes
+ * of multi-byte UTF-8 characters never equal the ASCII quote and backslash characters,
+ * so the bytes can be scanned without decoding them.
+ */
+class ResultScanner {
+
+    private static final byte[] RETURN_KEY = "\"return\"".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] json;
+    private final int end;
+    private int pos;
+
+    private int count;
+    private int[] keyStarts = new int[16];
+    private int[] valueStarts = new int[16];
+    private int[] valueEnds = new int[16];
+
+    private ResultScanner(byte[] json, int length) {
+        this.json = json;
+        this.end = length;
+    }
+
+    /**
+     * Scans a response for the entries of its command result.
+     *
+     * @param json the bytes of the response
+     * @param length the number of bytes of the response
+     * @return the entries, or null if the response is not a command result with a
+     * single element or could not be scanned
+     */
+    static Entries scan(byte[] json, int length) {
+        ResultScanner scanner = new ResultScanner(json, length);
+        try {
+            return scanner.scanDocument() ? scanner.entries() : null;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // Truncated document
+            return null;
+        }
+    }
+
+    private Entries entries() {
+        return new Entries(json, Arrays.copyOf(keyStarts, count),
+                Arrays.copyOf(valueStarts, count), Arrays.copyOf(valueEnds, count));
+    }
+
+    private boolean scanDocument() {
+        boolean found = false;
+        if (!consume('{')) {
+            return false;
+        }
+        while (!consume('}')) {
+            skipWhitespace();
+            boolean isReturn = startsWith(RETURN_KEY);
+            if (!skipString() || !consume(':')) {
+                return false;
+            }
+            if (isReturn) {
+                if (found || !scanReturn()) {
+                    return false;
+                }
+                found = true;
+            } else if (!skipValue()) {
+                return false;
+            }
+            consume(',');
+        }
+        skipWhitespace();
+        return found && pos == end;
+    }
+
+    /**
+     * Scans the return list, which has to contain exactly one object.
+     */
+    private boolean scanReturn() {
+        if (!consume('[') || !consume('{')) {
+            return false;
+        }
+        while (!consume('}')) {
+            skipWhitespace();
+            int keyStart = pos;
+            if (!skipString() || !consume(':')) {
+                return false;
+            }
+            skipWhitespace();
+            int valueStart = pos;
+            if (!skipValue()) {
+                return false;
+            }
+            add(keyStart, valueStart, pos);
+            consume(',');
+        }
+        return consume(']');
+    }
+
+    private void add(int keyStart, int valueStart, int valueEnd) {
+        if (count == keyStarts.length) {
+            keyStarts = Arrays.copyOf(keyStarts, count * 2);
+            valueStarts = Arrays.copyOf(valueStarts, count * 2);
+            valueEnds = Arrays.copyOf(valueEnds, count * 2);
+        }
+        keyStarts[count] = keyStart;
+        valueStarts[count] = valueStart;
+        valueEnds[count] = valueEnd;
+        count++;
+    }
+
+    private boolean skipValue() {
+        skipWhitespace();
+        if (pos >= end) {
+            return false;
+        }
+        byte b = json[pos];
+        if (b == '"') {
+            return skipString();
+        } else if (b == '{' || b == '[') {
+            int depth = 0;
+            while (pos < end) {
+                b = json[pos];
+                if (b == '"') {
+                    if (!skipString()) {
+                        return false;
+                    }
+                    continue;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        pos++;
+                        return true;
+                    }
+                }
+                pos++;
+            }
+            return false;
+        }
+        int start = pos;
+        while (pos < end && !isDelimiter(json[pos])) {
+            pos++;
+        }
+        return pos > start;
+    }
+
+    private boolean skipString() {
+        if (pos >= end || json[pos] != '"') {
+            return false;
+        }
+        pos++;
+        while (pos < end) {
+            byte b = json[pos];
+            if (b == '\\') {
+                pos += 2;
+            } else if (b == '"') {
+                pos++;
+                return true;
+            } else {
+                pos++;
+            }
+        }
+        return false;
+    }
+
+    private boolean startsWith(byte[] prefix) {
+        if (end - pos < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (json[pos + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips whitespace and the given character if it comes next.
+     */
+    private boolean consume(char c) {
+        skipWhitespace();
+        if (pos < end && json[pos] == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(json[pos])) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return isWhitespace(b) || b == ',' || b == ':' || b == '}' || b == ']';
+    }
+
+    /**
+     * The entries of a command result, in the order of the document.
+     */
+    static class Entries {
+
+        private final byte[] json;
+        private final int[] keyStarts;
+        private final int[] valueStarts;
+        private final int[] valueEnds;
+
+        Entries(byte[] json, int[] keyStarts, int[] valueStarts, int[] valueEnds) {
+            this.json = json;
+            this.keyStarts = keyStarts;
+            this.valueStarts = valueStarts;
+            this.valueEnds = valueEnds;
+        }
+
+        /**
+         * @return the bytes of the response
+         */
+        byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * @return the number of entries
+         */
+        int size() {
+            return keyStarts.length;
+        }
+
+        /**
+         * @param i the index of the entry
+         * @return the offset of the opening quote of the key
+         */
+        int getKeyStart(int i) {
+            return keyStarts[i];
+        }
+
+        /**
+         * @param i the index of the entry
+         * @return the offset of the first byte of the value
+         */
+        int getValueStart(int i) {
+            return valueStarts[i];
+        }
+
+        /**
+         * @param i the index of the entry
+         * @return the offset after the last byte of the value
+         */
+        int getValueEnd(int i) {
+            return valueEnds[i];
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.suse.saltstack.netapi.parser;
+
+import java.util.TimeZone;
+
+/**
+ * Parsers for the date formats used by the API, written by hand so that parsing the
+ * timestamps of large job listings does not go through {@link Double#parseDouble} or
+ * {@link java.text.SimpleDateFormat} for every entry. Parsing allocates no objects
+ * unless the input is invalid. Job start times and job ids are in the local time of
+ * the master, methods taking a {@link TimeZone} convert them.
+ */
+public final class SaltDates {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /** Integer parts with more digits might overflow when converted to milliseconds */
+    private static final int MAX_SECONDS_DIGITS = 15;
+
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    private SaltDates() {
+    }
+
+    /**
+     * Parses a (floating) number of seconds since the Epoch, e.g. "1425497309.724698".
+     * Digits after the milliseconds are truncated, like casting the number of
+     * milliseconds to a long does.
+     *
+     * @param value the number
+     * @return the milliseconds since the Epoch
+     * @throws NumberFormatException if the value is not a number
+     */
+    public static long parseEpochMillis(String value) {
+        int length = value.length();
+        int pos = 0;
+        boolean negative = false;
+        if (pos < length && (value.charAt(pos) == '-' || value.charAt(pos) == '+')) {
+            negative = value.charAt(pos) == '-';
+            pos++;
+        }
+        int start = pos;
+        long seconds = 0;
+        while (pos < length && isDigit(value.charAt(pos))) {
+            seconds = seconds * 10 + (value.charAt(pos) - '0');
+            pos++;
+        }
+        boolean hasDigits = pos > start;
+        if (pos - start > MAX_SECONDS_DIGITS) {
+            return parseDouble(value);
+        }
+        long millis = 0;
+        if (pos < length && value.charAt(pos) == '.') {
+            pos++;
+            int fractionStart = pos;
+            while (pos < length && isDigit(value.charAt(pos))) {
+                if (pos - fractionStart < 3) {
+                    millis = millis * 10 + (value.charAt(pos) - '0');
+                }
+                pos++;
+            }
+            for (int i = pos - fractionStart; i < 3; i++) {
+                millis *= 10;
+            }
+            hasDigits |= pos > fractionStart;
+        }
+        if (!hasDigits || pos < length) {
+            // Exponents and anything unusual
+            return parseDouble(value);
+        }
+        long result = seconds * 1000 + millis;
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parses the start time of a job as returned by jobs.list_jobs, e.g.
+     * "2015, Mar 04 19:28:29.724698". The time is given without a time zone and is
+     * interpreted as UTC. Digits after the milliseconds are truncated.
+     *
+     * @param value the start time
+     * @return the milliseconds since the Epoch
+     * @throws IllegalArgumentException if the value does not have the expected format
+     */
+    public static long parseJobStartTime(String value) {
+        // yyyy, MMM dd HH:mm:ss[.ffffff]
+        if (value.length() < 21 || value.charAt(4) != ',' || value.charAt(5) != ' '
+                || value.charAt(9) != ' ' || value.charAt(12) != ' '
+                || value.charAt(15) != ':' || value.charAt(18) != ':') {
+            throw invalid("job start time", value);
+        }
+        int millis = 0;
+        if (value.length() > 21) {
+            if (value.length() == 22 || value.charAt(21) != '.') {
+                throw invalid("job start time", value);
+            }
+            int end = Math.min(value.length(), 25);
+            millis = parseDigits(value, 22, end);
+            for (int i = end; i < 25; i++) {
+                millis *= 10;
+            }
+            for (int i = 25; i < value.length(); i++) {
+                if (!isDigit(value.charAt(i))) {
+                    throw invalid("job start time", value);
+                }
+            }
+        }
+        return toMillis("job start time", value, parseDigits(value, 0, 4),
+                parseMonth(value, 6), parseDigits(value, 10, 12),
+                parseDigits(value, 13, 15), parseDigits(value, 16, 18),
+                parseDigits(value, 19, 21), millis);
+    }
+
+    /**
+     * Parses the start time of a job in the local time of a master.
+     *
+     * @param value the start time
+     * @param zone the time zone of the master
+     * @return the milliseconds since the Epoch
+     * @throws IllegalArgumentException if the value does not have the expected format
+     * @see #parseJobStartTime(String)
+     */
+    public static long parseJobStartTime(String value, TimeZone zone) {
+        return fromLocalTime(parseJobStartTime(value), zone);
+    }
+
+    /**
+     * Formats a start time of a job in the format of jobs.list_jobs, the inverse of
+     * {@link #parseJobStartTime(String)}.
+     *
+     * @param millis the milliseconds since the Epoch
+     * @return the start time in UTC
+     */
+    public static String formatJobStartTime(long millis) {
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int time = (int) (millis - days * MILLIS_PER_DAY);
+        int[] date = toDate(days);
+
+        StringBuilder out = new StringBuilder(28);
+        out.append(date[0]).append(", ").append(MONTHS[date[1] - 1]).append(' ');
+        appendDigits(out, date[2], 2).append(' ');
+        appendDigits(out, time / 3600000, 2).append(':');
+        appendDigits(out, time / 60000 % 60, 2).append(':');
+        appendDigits(out, time / 1000 % 60, 2).append('.');
+        return appendDigits(out, time % 1000, 3).append("000").toString();
+    }
+
+    /**
+     * Returns the start time encoded in a job id, e.g. "20150304192951636258"
+     * (yyyyMMddHHmmssffffff in the local time of the master). Digits after the
+     * milliseconds are ignored.
+     *
+     * @param jid the job id
+     * @param zone the time zone of the master
+     * @return the milliseconds since the Epoch
+     * @throws IllegalArgumentException if the job id does not encode a time
+     */
+    public static long parseJobId(String jid, TimeZone zone) {
+        if (jid.length() < 17) {
+            throw invalid("job id", jid);
+        }
+        long local = toMillis("job id", jid, parseDigits(jid, 0, 4),
+                parseDigits(jid, 4, 6) - 1, parseDigits(jid, 6, 8),
+                parseDigits(jid, 8, 10), parseDigits(jid, 10, 12),
+                parseDigits(jid, 12, 14), parseDigits(jid, 14, 17));
+        return fromLocalTime(local, zone);
+    }
+
+    /**
+     * Returns the smallest job id of a job started at a given time, the inverse of
+     * {@link #parseJobId(String, TimeZone)}.
+     *
+     * @param millis the milliseconds since the Epoch
+     * @param zone the time zone of the master
+     * @return the job id
+     */
+    public static String formatJobId(long millis, TimeZone zone) {
+        long local = millis + zone.getOffset(millis);
+        long days = floorDiv(local, MILLIS_PER_DAY);
+        int time = (int) (local - days * MILLIS_PER_DAY);
+        int[] date = toDate(days);
+
+        StringBuilder out = new StringBuilder(20);
+        appendDigits(out, date[0], 4);
+        appendDigits(out, date[1], 2);
+        appendDigits(out, date[2], 2);
+        appendDigits(out, time / 3600000, 2);
+        appendDigits(out, time / 60000 % 60, 2);
+        appendDigits(out, time / 1000 % 60, 2);
+        return appendDigits(out, time % 1000, 3).append("000").toString();
+    }
+
+    /**
+     * Converts a local time, given as milliseconds since the Epoch as if it was UTC,
+     * to the milliseconds since the Epoch in a time zone. Local times skipped by a
+     * daylight saving transition are moved forward, ambiguous ones map to the
+     * later instant like with {@link java.text.SimpleDateFormat}.
+     *
+     * @param localMillis the local time
+     * @param zone the time zone
+     * @return the milliseconds since the Epoch
+     */
+    public static long fromLocalTime(long localMillis, TimeZone zone) {
+        // Offsets on both sides of a transition near the local time
+        int before = zone.getOffset(localMillis - MILLIS_PER_DAY);
+        int after = zone.getOffset(localMillis + MILLIS_PER_DAY);
+        int larger = Math.max(before, after);
+        int smaller = Math.min(before, after);
+        if (zone.getOffset(localMillis - smaller) == smaller) {
+            return localMillis - smaller;
+        } else if (zone.getOffset(localMillis - larger) == larger) {
+            return localMillis - larger;
+        }
+        return localMillis - before;
+    }
+
+    /**
+     * Checks the fields of a date and converts it to milliseconds since the Epoch in
+     * UTC.
+     */
+    private static long toMillis(String what, String value, int year, int month,
+            int day, int hour, int minute, int second, int millis) {
+        if (year < 1 || month < 0 || month > 11 || day < 1
+                || day > daysInMonth(year, month) || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59
+                || millis < 0) {
+            throw invalid(what, value);
+        }
+        long days = daysSinceEpoch(year, month + 1, day);
+        return days * MILLIS_PER_DAY + ((hour * 60L + minute) * 60 + second) * 1000
+                + millis;
+    }
+
+    /**
+     * Inverse of {@link #daysSinceEpoch(int, int, int)}, see there.
+     *
+     * @return the year, month (1 to 12) and day of the month
+     */
+    private static int[] toDate(long days) {
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+                - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[] {year, month, day};
+    }
+
+    /**
+     * Number of days from 1970-01-01 to a date of the proleptic Gregorian calendar. Years
+     * are shifted to start in March so the leap day is the last day of the year.
+     *
+     * @param year the year
+     * @param month the month, 1 to 12
+     * @param day the day of the month
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int shiftedMonth = month > 2 ? month - 3 : month + 9;
+        int dayOfYear = (153 * shiftedMonth + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 1:
+                boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 3:
+            case 5:
+            case 8:
+            case 10:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the month starting at the given index, 0 for January, or -1.
+     */
+    private static int parseMonth(String value, int start) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (value.regionMatches(start, MONTHS[i], 0, 3)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the non-negative number between the given indexes, or -1.
+     */
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static StringBuilder appendDigits(StringBuilder out, int value, int digits) {
+        for (int divisor = (int) Math.pow(10, digits - 1); divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+        return out;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static long parseDouble(String value) {
+        return (long) (Double.parseDouble(value) * 1000);
+    }
+
+    private static IllegalArgumentException invalid(String what, String value) {
+        return new IllegalArgumentException("invalid " + what + ": " + value);
+    }
+}
@@ -0,0 +1,154 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.suse.saltstack.netapi.results.StateSummary;
+
+import java.io.IOException;
+
+/**
+ * Parser summarizing the results of state runs (state.apply, state.sls or
+ * state.highstate). States are counted while the response is read, only the result,
+ * changes and duration of each state are looked at and everything else is skipped, so
+ * no result objects are built.
+ */
+public class StateSummaryParser extends JsonParser<StateSummary> {
+
+    /**
+     * Constructor.
+     */
+    public StateSummaryParser() {
+        super(new TypeToken<StateSummary>(){});
+    }
+
+    /**
+     * Parses the response and counts the states of every minion.
+     *
+     * @param reader the reader to parse from.
+     * @throws IOException if reading fails.
+     * @return The summary of all minions.
+     */
+    @Override
+    protected StateSummary parse(JsonReader reader) throws IOException {
+        StateSummary summary = new StateSummary();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"return".equals(reader.nextName())) {
+                // Job lookups repeat the whole result in the job info
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String minion = reader.nextName();
+                    summary.addMinion(minion, parseMinion(reader));
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return summary;
+    }
+
+    /**
+     * Counts the states of a minion, which returns either an object of states or a
+     * list of errors.
+     */
+    private static StateSummary parseMinion(JsonReader reader) throws IOException {
+        StateSummary summary = new StateSummary();
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    parseState(reader, summary);
+                }
+                reader.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                    summary.addError();
+                }
+                reader.endArray();
+                break;
+            case NULL:
+                reader.nextNull();
+                break;
+            default:
+                // A single error message, e.g. if the function is not available
+                reader.skipValue();
+                summary.addError();
+        }
+        return summary;
+    }
+
+    private static void parseState(JsonReader reader, StateSummary summary)
+            throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        Boolean result = null;
+        boolean changes = false;
+        double duration = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "result":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        result = JsonReaders.nextBoolean(reader);
+                    }
+                    break;
+                case "changes":
+                    changes = hasEntries(reader);
+                    break;
+                case "duration":
+                    duration = JsonReaders.nextDuration(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        summary.addState(result, changes, duration);
+    }
+
+    /**
+     * Skips an object or array and returns whether it was not empty.
+     */
+    private static boolean hasEntries(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            boolean entries = reader.hasNext();
+            while (reader.hasNext()) {
+                reader.nextName();
+                reader.skipValue();
+            }
+            reader.endObject();
+            return entries;
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            boolean entries = reader.hasNext();
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+            return entries;
+        }
+        reader.skipValue();
+        return false;
+    }
+}
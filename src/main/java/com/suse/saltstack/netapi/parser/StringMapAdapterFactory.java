@@ -0,0 +1,94 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Adapter factory for maps with string keys, reading keys with
+ * {@link JsonReader#nextName()}. The map adapter built into Gson accesses the internal
+ * state of the Gson reader to read keys, so it does not work with readers of other
+ * engines. Like the built-in adapter it creates {@link LinkedTreeMap} instances and
+ * rejects duplicate keys.
+ */
+class StringMapAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != Map.class) {
+            return null;
+        }
+        Type valueType = Object.class;
+        if (type.getType() instanceof ParameterizedType) {
+            Type[] arguments =
+                    ((ParameterizedType) type.getType()).getActualTypeArguments();
+            if (arguments[0] != String.class) {
+                return null;
+            }
+            valueType = arguments[1];
+        }
+        return (TypeAdapter<T>) newAdapter(gson.getAdapter(TypeToken.get(valueType)));
+    }
+
+    private static <V> Adapter<V> newAdapter(TypeAdapter<V> values) {
+        return new Adapter<>(values);
+    }
+
+    /**
+     * Adapter for maps with string keys.
+     *
+     * @param <V> the type of the values
+     */
+    private static class Adapter<V> extends TypeAdapter<Map<String, V>> {
+
+        private final TypeAdapter<V> values;
+
+        Adapter(TypeAdapter<V> values) {
+            this.values = values;
+        }
+
+        @Override
+        public void write(JsonWriter out, Map<String, V> map) throws IOException {
+            if (map == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (Map.Entry<String, V> entry : map.entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                values.write(out, entry.getValue());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Map<String, V> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Map<String, V> map = new LinkedTreeMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (map.put(key, values.read(in)) != null) {
+                    throw new JsonSyntaxException("duplicate key: " + key);
+                }
+            }
+            in.endObject();
+            return map;
+        }
+    }
+}
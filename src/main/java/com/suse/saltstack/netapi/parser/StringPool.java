@@ -0,0 +1,69 @@
+package com.suse.saltstack.netapi.parser;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of strings, used to share one instance between equal strings that are
+ * repeated many times in a result, like minion ids, state ids and keys.
+ * <p>
+ * The pool is a fixed size table of slots indexed by the hash of a string, each
+ * string can be held in one of two neighbouring slots. On a miss the string replaces
+ * the less recently added one, so the pool never grows and frequently repeated strings
+ * stay pooled. The pool may be used concurrently without locking: concurrent updates
+ * can only cause a string to not be shared, never a wrong string to be returned.
+ */
+public class StringPool {
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the maximum number of pooled strings, rounded up to a power of two
+     */
+    public StringPool(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the pooled instance equal to a string, after adding the string to the
+     * pool if there is none.
+     *
+     * @param value the string
+     * @return the pooled instance, or the given string itself
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        int first = (hash ^ (hash >>> 16)) & mask & ~1;
+        String pooled = slots.get(first);
+        if (value.equals(pooled)) {
+            return pooled;
+        }
+        String second = slots.get(first + 1);
+        if (value.equals(second)) {
+            return second;
+        }
+        // Keep the most recently added string of the two slots
+        if (pooled != null) {
+            slots.lazySet(first + 1, pooled);
+        }
+        slots.lazySet(first, value);
+        return value;
+    }
+
+    /**
+     * @return the maximum number of pooled strings
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+}
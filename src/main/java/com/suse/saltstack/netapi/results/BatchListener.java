@@ -0,0 +1,16 @@
+package com.suse.saltstack.netapi.results;
+
+import java.util.Map;
+
+/**
+ * Receives the results of a command executed in batch mode, one batch at a time.
+ */
+public interface BatchListener {
+
+    /**
+     * Invoked with the results of every batch as soon as the batch has completed.
+     *
+     * @param results Map key: minion id, value: command result from that minion
+     */
+    void onBatch(Map<String, Object> results);
+}
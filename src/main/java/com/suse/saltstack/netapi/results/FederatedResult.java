@@ -0,0 +1,65 @@
+package com.suse.saltstack.netapi.results;
+
+import com.suse.saltstack.netapi.exception.SaltStackException;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents the result of a call sent to several salt masters, holding what could be
+ * gathered as well as the masters that failed or did not answer in time.
+ *
+ * @param <T> The type of the value this result holds.
+ */
+public class FederatedResult<T> {
+
+    private final T result;
+    private final Map<URI, SaltStackException> errors;
+    private final Set<URI> timedOut;
+
+    /**
+     * Constructor.
+     *
+     * @param result the merged result of the masters that answered
+     * @param errors the exceptions of the masters that failed, keyed by master URL
+     * @param timedOut the URLs of the masters that did not answer in time
+     */
+    public FederatedResult(T result, Map<URI, SaltStackException> errors,
+            Set<URI> timedOut) {
+        this.result = result;
+        this.errors = Collections.unmodifiableMap(errors);
+        this.timedOut = Collections.unmodifiableSet(timedOut);
+    }
+
+    /**
+     * Returns the merged result of the masters that answered.
+     *
+     * @return The value of this result.
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * @return the exceptions of the masters that failed, keyed by master URL
+     */
+    public Map<URI, SaltStackException> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the URLs of the masters that did not answer in time
+     */
+    public Set<URI> getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return true if all masters answered successfully
+     */
+    public boolean isComplete() {
+        return errors.isEmpty() && timedOut.isEmpty();
+    }
+}
@@ -0,0 +1,20 @@
+package com.suse.saltstack.netapi.results;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Receives the results of a command sent to several salt masters as soon as each
+ * master has answered.
+ */
+public interface FederatedResultListener {
+
+    /**
+     * Invoked when a master answered, on the thread that sent the command.
+     *
+     * @param master the URL of the master
+     * @param results Map key: minion id, value: command result from that minion, only
+     * including minions that no other master returned before
+     */
+    void onResult(URI master, Map<String, Object> results);
+}
@@ -0,0 +1,27 @@
+package com.suse.saltstack.netapi.results;
+
+import com.suse.saltstack.netapi.datatypes.Job;
+
+/**
+ * Receives the jobs of a job listing one at a time while the listing is read.
+ */
+public interface JobListener {
+
+    /**
+     * Invoked with the id of every listed job before the job is parsed.
+     *
+     * @param jid the job id
+     * @return true to parse the job and pass it to {@link #onJob(String, Job)}, false
+     * to skip it
+     */
+    boolean accept(String jid);
+
+    /**
+     * Invoked for every accepted job as soon as it has been read.
+     *
+     * @param jid the job id
+     * @param job the job
+     * @return true to continue reading the listing, false to stop
+     */
+    boolean onJob(String jid, Job job);
+}
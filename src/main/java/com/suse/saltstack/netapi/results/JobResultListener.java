@@ -0,0 +1,28 @@
+package com.suse.saltstack.netapi.results;
+
+import com.suse.saltstack.netapi.exception.SaltStackException;
+
+import java.util.Map;
+
+/**
+ * Receives the results of several jobs fetched in parallel as soon as each of them
+ * is available. Methods may be invoked concurrently from several threads.
+ */
+public interface JobResultListener {
+
+    /**
+     * Invoked with the result of a job.
+     *
+     * @param jid the job id
+     * @param result Map key: minion id, value: command result from that minion
+     */
+    void onResult(String jid, Map<String, Object> result);
+
+    /**
+     * Invoked if the result of a job could not be fetched.
+     *
+     * @param jid the job id
+     * @param e the exception
+     */
+    void onFailure(String jid, SaltStackException e);
+}
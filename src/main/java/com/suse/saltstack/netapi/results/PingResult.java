@@ -0,0 +1,161 @@
+package com.suse.saltstack.netapi.results;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of test.ping: the minions that returned and which of them responded with
+ * true. Minion ids are kept sorted in an array and the responding minions as a bit
+ * set over it.
+ */
+@JsonAdapter(PingResult.AdapterFactory.class)
+public class PingResult {
+
+    private final String[] minions;
+    private final BitSet responding;
+
+    /**
+     * Constructor.
+     *
+     * @param minions the minion ids, sorted and without duplicates
+     * @param responding the indexes of the minions that responded with true
+     */
+    PingResult(String[] minions, BitSet responding) {
+        this.minions = minions;
+        this.responding = responding;
+    }
+
+    /**
+     * @return the ids of all minions that returned, sorted
+     */
+    public List<String> getMinions() {
+        return Collections.unmodifiableList(Arrays.asList(minions));
+    }
+
+    /**
+     * Returns whether a minion responded with true.
+     *
+     * @param minion the minion id
+     * @return true if the minion responded
+     */
+    public boolean isResponding(String minion) {
+        int i = Arrays.binarySearch(minions, minion);
+        return i >= 0 && responding.get(i);
+    }
+
+    /**
+     * @return the ids of the minions that responded with true, sorted
+     */
+    public List<String> getResponding() {
+        return select(true);
+    }
+
+    /**
+     * @return the ids of the minions that returned anything else than true, sorted
+     */
+    public List<String> getNotResponding() {
+        return select(false);
+    }
+
+    /**
+     * @return the number of minions that responded with true
+     */
+    public int getRespondingCount() {
+        return responding.cardinality();
+    }
+
+    private List<String> select(boolean value) {
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < minions.length; i++) {
+            if (responding.get(i) == value) {
+                selected.add(minions[i]);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Creates the Gson adapter for this class.
+     */
+    static class AdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return (TypeAdapter<T>) new Adapter();
+        }
+    }
+
+    /**
+     * Gson adapter for this class, reading an object of minion ids and their return
+     * values.
+     */
+    private static class Adapter extends TypeAdapter<PingResult> {
+
+        @Override
+        public void write(JsonWriter out, PingResult result) throws IOException {
+            if (result == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (int i = 0; i < result.minions.length; i++) {
+                out.name(result.minions[i]).value(result.responding.get(i));
+            }
+            out.endObject();
+        }
+
+        @Override
+        public PingResult read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<String> minions = new ArrayList<>();
+            List<String> responding = new ArrayList<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String minion = in.nextName();
+                minions.add(minion);
+                if (in.peek() != JsonToken.BOOLEAN) {
+                    // Minions that did not return may be listed with a message
+                    in.skipValue();
+                } else if (in.nextBoolean()) {
+                    responding.add(minion);
+                }
+            }
+            in.endObject();
+
+            String[] sorted = unique(minions.toArray(new String[minions.size()]));
+            BitSet bits = new BitSet(sorted.length);
+            for (String minion : responding) {
+                bits.set(Arrays.binarySearch(sorted, minion));
+            }
+            return new PingResult(sorted, bits);
+        }
+
+        private static String[] unique(String[] minions) {
+            Arrays.sort(minions);
+            int size = 0;
+            for (int i = 0; i < minions.length; i++) {
+                if (size == 0 || !minions[i].equals(minions[size - 1])) {
+                    minions[size++] = minions[i];
+                }
+            }
+            return size == minions.length ? minions : Arrays.copyOf(minions, size);
+        }
+    }
+}
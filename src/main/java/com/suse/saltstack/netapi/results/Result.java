@@ -12,6 +12,21 @@ public class Result<T> {
     @SerializedName("return")
     private T result;
 
+    /**
+     * Constructor for an empty result.
+     */
+    public Result() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param result the value of this result
+     */
+    public Result(T result) {
+        this.result = result;
+    }
+
     /**
      * Returns the value of this result.
      *
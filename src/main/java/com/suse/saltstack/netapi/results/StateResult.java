@@ -0,0 +1,252 @@
+package com.suse.saltstack.netapi.results;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.suse.saltstack.netapi.parser.JsonReaders;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Result of a single state as returned by state.apply, state.sls or state.highstate.
+ * States are identified by a key of the form module_|-id_|-name_|-function, e.g.
+ * file_|-/etc/motd_|-/etc/motd_|-managed.
+ */
+@JsonAdapter(StateResult.AdapterFactory.class)
+public class StateResult {
+
+    private static final Pattern SEPARATOR = Pattern.compile("_|-", Pattern.LITERAL);
+
+    private String key;
+    private String id;
+    private String name;
+    private String sls;
+    private Boolean result;
+    private String comment;
+    private Map<String, Object> changes;
+    private double duration;
+    private String startTime;
+    private int runNum;
+
+    /**
+     * @return the key of the state, module_|-id_|-name_|-function
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the state function, e.g. file.managed, or null if the key is malformed
+     */
+    public String getFunction() {
+        String[] parts = key == null ? new String[0] : SEPARATOR.split(key);
+        return parts.length == 4 ? parts[0] + "." + parts[3] : null;
+    }
+
+    /**
+     * @return the id of the state declaration
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the name the state was applied to
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the sls file the state is declared in
+     */
+    public String getSls() {
+        return sls;
+    }
+
+    /**
+     * @return true if the state succeeded, false if it failed, null if it would have
+     * made changes in test mode
+     */
+    public Boolean getResult() {
+        return result;
+    }
+
+    /**
+     * @return the comment of the state
+     */
+    public String getComment() {
+        return comment;
+    }
+
+    /**
+     * @return the changes made by the state, empty if there were none
+     */
+    public Map<String, Object> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return whether the state made changes
+     */
+    public boolean hasChanges() {
+        return changes != null && !changes.isEmpty();
+    }
+
+    /**
+     * @return the duration of the state in milliseconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the time the state started at, as reported by the minion
+     */
+    public String getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the position of the state in the order of execution
+     */
+    public int getRunNum() {
+        return runNum;
+    }
+
+    /**
+     * Sets the key and fills the id and name from it if they were not returned.
+     */
+    void setKey(String key) {
+        this.key = key;
+        String[] parts = SEPARATOR.split(key);
+        if (parts.length == 4) {
+            id = id != null ? id : parts[1];
+            name = name != null ? name : parts[2];
+        }
+    }
+
+    /**
+     * Creates the Gson adapter for this class.
+     */
+    static class AdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return (TypeAdapter<T>) new Adapter(gson);
+        }
+    }
+
+    /**
+     * Gson adapter for this class.
+     */
+    private static class Adapter extends TypeAdapter<StateResult> {
+
+        private final TypeAdapter<Map<String, Object>> maps;
+
+        Adapter(Gson gson) {
+            maps = gson.getAdapter(new TypeToken<Map<String, Object>>(){});
+        }
+
+        @Override
+        public void write(JsonWriter out, StateResult state) throws IOException {
+            if (state == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("__id__").value(state.id);
+            out.name("name").value(state.name);
+            out.name("__sls__").value(state.sls);
+            out.name("result");
+            if (state.result == null) {
+                out.nullValue();
+            } else {
+                out.value(state.result);
+            }
+            out.name("comment").value(state.comment);
+            out.name("changes");
+            maps.write(out, state.changes);
+            out.name("duration").value(state.duration);
+            out.name("start_time").value(state.startTime);
+            out.name("__run_num__").value(state.runNum);
+            out.endObject();
+        }
+
+        @Override
+        public StateResult read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            StateResult state = new StateResult();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "__id__":
+                        state.id = JsonReaders.nextString(in);
+                        break;
+                    case "name":
+                        state.name = JsonReaders.nextString(in);
+                        break;
+                    case "__sls__":
+                        state.sls = JsonReaders.nextString(in);
+                        break;
+                    case "result":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            state.result = JsonReaders.nextBoolean(in);
+                        }
+                        break;
+                    case "comment":
+                        state.comment = nextComment(in);
+                        break;
+                    case "changes":
+                        state.changes = maps.read(in);
+                        break;
+                    case "duration":
+                        state.duration = JsonReaders.nextDuration(in);
+                        break;
+                    case "start_time":
+                        state.startTime = JsonReaders.nextString(in);
+                        break;
+                    case "__run_num__":
+                        state.runNum = JsonReaders.nextInt(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return state;
+        }
+
+        /**
+         * Reads a comment, which some states return as a list of lines.
+         */
+        private static String nextComment(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                return JsonReaders.nextString(in);
+            }
+            StringBuilder comment = new StringBuilder();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (comment.length() > 0) {
+                    comment.append('\n');
+                }
+                comment.append(JsonReaders.nextString(in));
+            }
+            in.endArray();
+            return comment.toString();
+        }
+    }
+}
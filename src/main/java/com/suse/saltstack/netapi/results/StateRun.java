@@ -0,0 +1,182 @@
+package com.suse.saltstack.netapi.results;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.suse.saltstack.netapi.parser.JsonReaders;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Result of a state run (state.apply, state.sls or state.highstate) on a single minion:
+ * either the results of the states in the order they were executed, or the errors that
+ * prevented the states from running, e.g. rendering errors.
+ */
+@JsonAdapter(StateRun.AdapterFactory.class)
+public class StateRun {
+
+    private static final Comparator<StateResult> BY_RUN_NUM =
+            new Comparator<StateResult>() {
+                @Override
+                public int compare(StateResult a, StateResult b) {
+                    return Integer.compare(a.getRunNum(), b.getRunNum());
+                }
+            };
+
+    private final List<StateResult> states;
+    private final List<String> errors;
+
+    /**
+     * Constructor.
+     *
+     * @param states the results of the states
+     * @param errors the errors
+     */
+    StateRun(List<StateResult> states, List<String> errors) {
+        this.states = states;
+        this.errors = errors;
+    }
+
+    /**
+     * @return the results of the states in the order they were executed
+     */
+    public List<StateResult> getStates() {
+        return Collections.unmodifiableList(states);
+    }
+
+    /**
+     * Returns the result of a state.
+     *
+     * @param key the key of the state, module_|-id_|-name_|-function
+     * @return the result or null if there is no such state
+     */
+    public StateResult getState(String key) {
+        for (StateResult state : states) {
+            if (state.getKey().equals(key)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the states that failed
+     */
+    public List<StateResult> getFailed() {
+        List<StateResult> failed = new ArrayList<>();
+        for (StateResult state : states) {
+            if (Boolean.FALSE.equals(state.getResult())) {
+                failed.add(state);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return the errors that prevented the states from running
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return true if there were no errors and no state failed
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty() && getFailed().isEmpty();
+    }
+
+    /**
+     * Creates the Gson adapter for this class.
+     */
+    static class AdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return (TypeAdapter<T>) new Adapter(gson);
+        }
+    }
+
+    /**
+     * Gson adapter for this class, reading either an object of states keyed by their
+     * key or a list of errors.
+     */
+    private static class Adapter extends TypeAdapter<StateRun> {
+
+        private final TypeAdapter<StateResult> results;
+
+        Adapter(Gson gson) {
+            results = gson.getAdapter(StateResult.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, StateRun run) throws IOException {
+            if (run == null) {
+                out.nullValue();
+            } else if (!run.errors.isEmpty()) {
+                out.beginArray();
+                for (String error : run.errors) {
+                    out.value(error);
+                }
+                out.endArray();
+            } else {
+                out.beginObject();
+                for (StateResult state : run.states) {
+                    out.name(state.getKey());
+                    results.write(out, state);
+                }
+                out.endObject();
+            }
+        }
+
+        @Override
+        public StateRun read(JsonReader in) throws IOException {
+            List<StateResult> states = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            switch (in.peek()) {
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case BEGIN_OBJECT:
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String key = in.nextName();
+                        StateResult state = results.read(in);
+                        if (state != null) {
+                            state.setKey(key);
+                            states.add(state);
+                        }
+                    }
+                    in.endObject();
+                    Collections.sort(states, BY_RUN_NUM);
+                    break;
+                case BEGIN_ARRAY:
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        if (in.peek() == JsonToken.BEGIN_OBJECT
+                                || in.peek() == JsonToken.BEGIN_ARRAY) {
+                            in.skipValue();
+                        } else {
+                            errors.add(JsonReaders.nextString(in));
+                        }
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    // A single error message, e.g. if the function is not available
+                    errors.add(JsonReaders.nextString(in));
+            }
+            return new StateRun(states, errors);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.suse.saltstack.netapi.results;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters summarizing state runs (state.apply, state.sls or state.highstate), either
+ * of a single minion or of all minions targeted by a job. A summary of several minions
+ * also keeps the summary of every single minion.
+ */
+public class StateSummary {
+
+    private int states;
+    private int succeeded;
+    private int failed;
+    private int pending;
+    private int changed;
+    private int errors;
+    private double duration;
+    private int failedMinions;
+    private final Map<String, StateSummary> minions = new LinkedHashMap<>();
+
+    /**
+     * Counts the result of a state.
+     *
+     * @param result the result of the state, null if it would have made changes in
+     * test mode
+     * @param hasChanges whether the state made changes
+     * @param durationMillis the duration of the state in milliseconds
+     */
+    public void addState(Boolean result, boolean hasChanges, double durationMillis) {
+        states++;
+        if (result == null) {
+            pending++;
+        } else if (result) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+        if (hasChanges) {
+            changed++;
+        }
+        duration += durationMillis;
+    }
+
+    /**
+     * Counts an error that prevented states from running, e.g. a rendering error.
+     */
+    public void addError() {
+        errors++;
+    }
+
+    /**
+     * Adds the summary of a minion to the counters of this summary.
+     *
+     * @param minion the minion id
+     * @param summary the summary of the minion
+     */
+    public void addMinion(String minion, StateSummary summary) {
+        states += summary.states;
+        succeeded += summary.succeeded;
+        failed += summary.failed;
+        pending += summary.pending;
+        changed += summary.changed;
+        errors += summary.errors;
+        duration += summary.duration;
+        if (!summary.isSuccess()) {
+            failedMinions++;
+        }
+        minions.put(minion, summary);
+    }
+
+    /**
+     * @return the number of states
+     */
+    public int getStates() {
+        return states;
+    }
+
+    /**
+     * @return the number of states that succeeded
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return the number of states that failed
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of states that would have made changes in test mode
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the number of states that made changes
+     */
+    public int getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return the number of errors that prevented states from running
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the total duration of all states in milliseconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return true if no state failed and there were no errors
+     */
+    public boolean isSuccess() {
+        return failed == 0 && errors == 0;
+    }
+
+    /**
+     * @return the number of minions with failed states or errors
+     */
+    public int getFailedMinionCount() {
+        return failedMinions;
+    }
+
+    /**
+     * @return Map key: minion id, value: summary of that minion
+     */
+    public Map<String, StateSummary> getMinions() {
+        return Collections.unmodifiableMap(minions);
+    }
+}
@@ -3,11 +3,14 @@ package com.suse.saltstack.netapi.utils;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.suse.saltstack.netapi.Constants;
 import com.suse.saltstack.netapi.client.SaltStackClient;
+import com.suse.saltstack.netapi.datatypes.LowState;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -88,4 +91,30 @@ public class ClientUtils {
 
         return json;
     }
+
+    /**
+     * Helper for constructing the json object of a lowstate chunk. Keyword arguments
+     * are passed in 'kwarg' to the local clients and at the top level to the runner
+     * and wheel clients.
+     *
+     * @param lowState the lowstate chunk
+     * @return JsonObject filled with the lowstate data.
+     */
+    public static JsonObject makeLowStateData(LowState lowState) {
+        Map<String, String> props = new LinkedHashMap<>();
+        props.put("client", lowState.getClient());
+        if (lowState.getTarget() != null) {
+            props.put("tgt", lowState.getTarget().getTarget());
+            props.put("expr_form", lowState.getTarget().getType());
+        }
+        props.put("fun", lowState.getFunction());
+
+        if (lowState.getClient().startsWith(Constants.CLIENT_LOCAL)) {
+            return makeJsonData(props, lowState.getKwargs(), lowState.getArgs());
+        }
+        if (lowState.getKwargs() != null) {
+            props.putAll(lowState.getKwargs());
+        }
+        return makeJsonData(props, null, lowState.getArgs());
+    }
 }
@@ -0,0 +1,121 @@
+package com.suse.saltstack.netapi.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * JobResultCache unit tests.
+ */
+public class JobResultCacheTest {
+
+    private static Map<String, Object> result(String... minions) {
+        Map<String, Object> result = new HashMap<>();
+        for (String minion : minions) {
+            result.put(minion, true);
+        }
+        return result;
+    }
+
+    @Test
+    public void testOnlyCompleteResultsAreStored() {
+        JobResultCache cache = new JobResultCache(1 << 20, 0);
+        assertFalse(cache.put("1", Arrays.asList("a", "b"), result("a")));
+        assertNull(cache.get("1"));
+        assertTrue(cache.put("1", Arrays.asList("a", "b"), result("a", "b")));
+        assertEquals(true, cache.get("1").get("b"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testResultIsCopied() {
+        JobResultCache cache = new JobResultCache(1 << 20, 0);
+        Map<String, Object> result = result("a");
+        assertTrue(cache.put("1", Arrays.asList("a"), result));
+        result.put("a", false);
+        result.put("b", true);
+        assertEquals(true, cache.get("1").get("a"));
+        assertEquals(1, cache.get("1").size());
+    }
+
+    @Test
+    public void testResultIsCopiedDeeply() {
+        JobResultCache cache = new JobResultCache(1 << 20, 0);
+        List<Object> lines = new ArrayList<>();
+        lines.add("line");
+        Map<String, Object> output = new HashMap<>();
+        output.put("lines", lines);
+        Map<String, Object> result = new HashMap<>();
+        result.put("a", output);
+        assertTrue(cache.put("1", Arrays.asList("a"), result));
+        lines.add("changed");
+
+        Map<?, ?> cached = (Map<?, ?>) cache.get("1").get("a");
+        List<?> cachedLines = (List<?>) cached.get("lines");
+        assertEquals(Arrays.asList("line"), cachedLines);
+        try {
+            cachedLines.clear();
+            fail("Expected the cached result to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            cache.get("1").remove("a");
+            fail("Expected the cached result to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Map<String, Object> copy = JobResultCache.immutableCopy(result);
+        assertTrue(copy == JobResultCache.immutableCopy(copy));
+    }
+
+    @Test
+    public void testExpectedMinions() {
+        JobResultCache cache = new JobResultCache(1 << 20, 0);
+        assertNull(cache.getExpectedMinions("1"));
+        cache.expect("1", Arrays.asList("a", "b"));
+        assertEquals(Arrays.asList("a", "b"), cache.getExpectedMinions("1"));
+        assertTrue(cache.put("1", cache.getExpectedMinions("1"), result("a", "b")));
+        assertNull(cache.getExpectedMinions("1"));
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        long size = JobResultCache.estimateSize("1")
+                + JobResultCache.estimateSize(result("a"));
+        JobResultCache cache = new JobResultCache(2 * size, 0);
+        cache.put("1", Collections.singleton("a"), result("a"));
+        cache.put("2", Collections.singleton("a"), result("a"));
+        cache.get("1");
+        cache.put("3", Collections.singleton("a"), result("a"));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2 * size, cache.getSizeInBytes());
+        assertNull(cache.get("2"));
+        assertEquals(true, cache.get("1").get("a"));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        JobResultCache cache = new JobResultCache(1 << 20, 20);
+        cache.put("1", Collections.singleton("a"), result("a"));
+        Thread.sleep(50);
+        assertNull(cache.get("1"));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+}
@@ -0,0 +1,192 @@
+package com.suse.saltstack.netapi.cache;
+
+import com.suse.saltstack.netapi.datatypes.Job;
+import com.suse.saltstack.netapi.parser.CompactMap;
+import com.suse.saltstack.netapi.parser.JsonParser;
+import com.suse.saltstack.netapi.results.Result;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * JobResultStore unit tests.
+ */
+public class JobResultStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Object> result(String minion, Object value) {
+        return Collections.singletonMap(minion, value);
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        File dir = folder.newFolder();
+        JobResultStore store = new JobResultStore(dir, 256, 1 << 20);
+        for (int i = 0; i < 20; i++) {
+            store.putJobResult("job-" + i, result("minion-" + i, "output " + i));
+        }
+        store.remove("job-3");
+        assertTrue(store.getSegmentCount() > 1);
+        store.close();
+
+        store = new JobResultStore(dir, 256, 1 << 20);
+        assertEquals(19, store.getRecordCount());
+        assertNull(store.getJobResult("job-3"));
+        assertEquals("output 7", store.getJobResult("job-7").get("minion-7"));
+        assertEquals("output 19", store.getJobResult("job-19").get("minion-19"));
+        store.close();
+    }
+
+    @Test
+    public void testTruncatedRecordIsDropped() throws Exception {
+        File dir = folder.newFolder();
+        JobResultStore store = new JobResultStore(dir);
+        store.putJobResult("job-1", result("minion-1", true));
+        store.putJobResult("job-2", result("minion-2", true));
+        store.close();
+
+        File segment = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".seg");
+            }
+        })[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        store = new JobResultStore(dir);
+        assertEquals(true, store.getJobResult("job-1").get("minion-1"));
+        assertNull(store.getJobResult("job-2"));
+        store.putJobResult("job-3", result("minion-3", false));
+        assertEquals(false, store.getJobResult("job-3").get("minion-3"));
+        store.close();
+    }
+
+    @Test
+    public void testCompactionDropsOldestRecords() throws Exception {
+        JobResultStore store = new JobResultStore(folder.newFolder(), 1024, 4096);
+        for (int i = 0; i < 200; i++) {
+            store.putJobResult("job-" + i, result("minion", i));
+        }
+        assertTrue(store.getSizeInBytes() <= 4096);
+        assertTrue(store.getEvictionCount() > 0);
+        assertNull(store.getJobResult("job-0"));
+        assertEquals(199.0, store.getJobResult("job-199").get("minion"));
+
+        store.compact();
+        assertEquals(200 - store.getEvictionCount(), store.getRecordCount());
+        assertEquals(198.0, store.getJobResult("job-198").get("minion"));
+        store.close();
+    }
+
+    @Test
+    public void testJobs() throws Exception {
+        Result<List<Map<String, Job>>> parsed = JsonParser.JOBS.parse(
+                getClass().getResourceAsStream("/jobs_response_kwargs.json"));
+        Map<String, Job> jobs = parsed.getResult().get(0);
+
+        File dir = folder.newFolder();
+        JobResultStore store = new JobResultStore(dir);
+        store.putJobs(jobs);
+        long size = store.getSizeInBytes();
+        store.putJobs(jobs);
+        assertEquals(size, store.getSizeInBytes());
+        store.close();
+
+        store = new JobResultStore(dir);
+        Map<String, Job> stored = store.getJobs();
+        assertEquals(jobs.keySet(), stored.keySet());
+        for (String jid : jobs.keySet()) {
+            Job expected = jobs.get(jid);
+            Job job = store.getJob(jid);
+            assertEquals(expected.getFunction(), job.getFunction());
+            assertEquals(expected.getUser(), job.getUser());
+            assertEquals(expected.getArguments().getArgs(), job.getArguments().getArgs());
+            assertEquals(expected.getArguments().getKwargs(),
+                    job.getArguments().getKwargs());
+            assertEquals(expected.getStartTime(), job.getStartTime());
+        }
+        store.close();
+    }
+
+    @Test
+    public void testForeignFilesAreIgnored() throws Exception {
+        File dir = folder.newFolder();
+        assertTrue(new File(dir, "backup.seg").createNewFile());
+        assertTrue(new File(dir, "notes.txt").createNewFile());
+        JobResultStore store = new JobResultStore(dir);
+        store.putJobResult("job-1", result("minion-1", true));
+        store.close();
+
+        store = new JobResultStore(dir);
+        assertEquals(true, store.getJobResult("job-1").get("minion-1"));
+        assertEquals(1, store.getSegmentCount());
+        store.close();
+    }
+
+    @Test
+    public void testCompactionDeletesOldSegments() throws Exception {
+        File dir = folder.newFolder();
+        JobResultStore store = new JobResultStore(dir, 256, 1 << 20);
+        for (int i = 0; i < 20; i++) {
+            store.putJobResult("job-" + i, result("minion-" + i, "output " + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            store.remove("job-" + i);
+        }
+        store.compact();
+        assertEquals("output 15", store.getJobResult("job-15").get("minion-15"));
+        assertEquals(store.getSegmentCount(), dir.listFiles().length - 1);
+        store.close();
+    }
+
+    @Test
+    public void testDecodeWithParser() throws Exception {
+        JobResultStore store = new JobResultStore(folder.newFolder());
+        store.putJobResult("job-1", result("minion-1", 42));
+        Map<String, Object> result =
+                store.getJobResult("job-1", JsonParser.COMPACT_RETVALS, null);
+        assertTrue(result instanceof CompactMap);
+        // Decoded like a response from the API
+        Map<String, Object> expected = JsonParser.RETVALS.parse(new ByteArrayInputStream(
+                "{\"return\": [{\"minion-1\": 42}]}".getBytes(StandardCharsets.UTF_8)))
+                .getResult().get(0);
+        assertEquals(expected, store.getJobResult("job-1"));
+        store.close();
+    }
+
+    @Test
+    public void testDirectoryIsLocked() throws Exception {
+        File dir = folder.newFolder();
+        JobResultStore store = new JobResultStore(dir);
+        try {
+            new JobResultStore(dir);
+            fail("Expected the directory to be locked");
+        } catch (IOException e) {
+            // expected
+        }
+        store.close();
+
+        store = new JobResultStore(dir);
+        store.close();
+    }
+}
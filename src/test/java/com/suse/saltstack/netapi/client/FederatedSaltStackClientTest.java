@@ -0,0 +1,170 @@
+package com.suse.saltstack.netapi.client;
+
+import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.results.FederatedResult;
+import com.suse.saltstack.netapi.results.FederatedResultListener;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * FederatedSaltStackClient unit tests.
+ */
+public class FederatedSaltStackClientTest {
+
+    private static final int MOCK_HTTP_PORT = 8888;
+    private static final int SECOND_MOCK_HTTP_PORT = 8890;
+    private static final int DEAD_HTTP_PORT = 8889;
+
+    @Rule
+    public WireMockRule first = new WireMockRule(MOCK_HTTP_PORT);
+
+    @Rule
+    public WireMockRule second = new WireMockRule(SECOND_MOCK_HTTP_PORT);
+
+    private URI firstUri;
+    private URI secondUri;
+    private URI deadUri;
+
+    @Before
+    public void init() {
+        firstUri = URI.create("http://localhost:" + MOCK_HTTP_PORT);
+        secondUri = URI.create("http://localhost:" + SECOND_MOCK_HTTP_PORT);
+        deadUri = URI.create("http://localhost:" + DEAD_HTTP_PORT);
+
+        first.stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(SaltStackClientTest.JSON_RUN_RESPONSE)));
+        second.stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"minion-1\": true," +
+                                " \"minion-2\": true}]}")));
+    }
+
+    @Test
+    public void testRunMergesMinions() throws Exception {
+        FederatedSaltStackClient client = new FederatedSaltStackClient(Arrays.asList(
+                new SaltStackClient(firstUri), new SaltStackClient(secondUri)));
+
+        FederatedResult<Map<String, Object>> result = client.run("user", "pass", "pam",
+                "local", "*", "test.ping", null, null, 5000);
+
+        assertTrue(result.isComplete());
+        assertEquals(2, result.getResult().size());
+        assertEquals(true, result.getResult().get("minion-1"));
+        assertEquals(true, result.getResult().get("minion-2"));
+    }
+
+    @Test
+    public void testRunReportsFailedMaster() throws Exception {
+        FederatedSaltStackClient client = new FederatedSaltStackClient(Arrays.asList(
+                new SaltStackClient(firstUri), new SaltStackClient(deadUri)));
+
+        FederatedResult<Map<String, Object>> result = client.run("user", "pass", "pam",
+                "local", "*", "test.ping", null, null, 5000);
+
+        assertFalse(result.isComplete());
+        assertEquals(1, result.getResult().size());
+        assertTrue(result.getErrors().containsKey(deadUri));
+    }
+
+    @Test
+    public void testStartCommandReportsSlowMaster() throws Exception {
+        first.stubFor(post(urlEqualTo("/minions"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(SaltStackClientTest.JSON_START_COMMAND_RESPONSE)));
+        second.stubFor(post(urlEqualTo("/minions"))
+                .willReturn(aResponse()
+                        .withFixedDelay(2000)
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(SaltStackClientTest.JSON_START_COMMAND_RESPONSE)));
+        FederatedSaltStackClient client = new FederatedSaltStackClient(Arrays.asList(
+                new SaltStackClient(firstUri), new SaltStackClient(secondUri)));
+
+        FederatedResult<Map<URI, JobMinions>> result =
+                client.startCommand("*", "test.ping", null, null, 500);
+
+        assertEquals(1, result.getResult().size());
+        assertEquals("20150211105524392307",
+                result.getResult().get(firstUri).getJid());
+        assertTrue(result.getTimedOut().contains(secondUri));
+    }
+
+    @Test
+    public void testRunNotifiesListenerPerMaster() throws Exception {
+        second.stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withFixedDelay(300)
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"minion-1\": false," +
+                                " \"minion-3\": true}]}")));
+        FederatedSaltStackClient client = new FederatedSaltStackClient(Arrays.asList(
+                new SaltStackClient(firstUri), new SaltStackClient(secondUri)));
+
+        final Map<URI, Map<String, Object>> notified = new LinkedHashMap<>();
+        FederatedResult<Map<String, Object>> result = client.run("user", "pass", "pam",
+                "local", "*", "test.ping", null, null, 5000,
+                new FederatedResultListener() {
+                    @Override
+                    public void onResult(URI master, Map<String, Object> results) {
+                        notified.put(master, results);
+                    }
+                });
+        client.close();
+
+        assertEquals(Arrays.asList(firstUri, secondUri),
+                Arrays.asList(notified.keySet().toArray()));
+        // minion-1 answered through the first master already
+        assertEquals(1, notified.get(secondUri).size());
+        assertEquals(true, notified.get(secondUri).get("minion-3"));
+        assertEquals(notified.get(firstUri).size() + 1, result.getResult().size());
+        assertEquals(true, result.getResult().get("minion-1"));
+    }
+
+    @Test
+    public void testDuplicateMasterUrl() {
+        try {
+            new FederatedSaltStackClient(Arrays.asList(new SaltStackClient(firstUri),
+                    new SaltStackClient(firstUri)));
+            fail("Expected duplicate URLs to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCloseKeepsSuppliedExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        new FederatedSaltStackClient(Arrays.asList(new SaltStackClient(firstUri)),
+                executor).close();
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,130 @@
+package com.suse.saltstack.netapi.client;
+
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.datatypes.Job;
+import com.suse.saltstack.netapi.parser.JsonParser;
+import com.suse.saltstack.netapi.utils.ClientUtils;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TimeZone;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * JobTracker unit tests.
+ */
+public class JobTrackerTest {
+
+    private static final int MOCK_HTTP_PORT = 8888;
+
+    private static final String JSON_JOBS_RESPONSE = ClientUtils.streamToString(
+            JobTrackerTest.class.getResourceAsStream("/jobs_response.json"));
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(MOCK_HTTP_PORT);
+
+    private JobTracker tracker;
+
+    @Before
+    public void init() {
+        tracker = new JobTracker(new SaltStackClient(
+                URI.create("http://localhost:" + MOCK_HTTP_PORT)));
+    }
+
+    private static String job(String jid, String function, String user) {
+        return "\"" + jid + "\": {\"Function\": \"" + function + "\", \"Target\": \"*\", "
+                + "\"Target-type\": \"glob\", \"User\": \"" + user + "\", "
+                + "\"Arguments\": []}";
+    }
+
+    private static Map<String, Job> listing(String... jobs) {
+        StringBuilder json = new StringBuilder("{\"return\": [{");
+        for (int i = 0; i < jobs.length; i++) {
+            json.append(i > 0 ? "," : "").append(jobs[i]);
+        }
+        json.append("}]}");
+        return JsonParser.JOBS.parse(new ByteArrayInputStream(
+                json.toString().getBytes())).getResult().get(0);
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        stubFor(get(urlEqualTo("/jobs"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_JOBS_RESPONSE)));
+
+        List<String> added = tracker.refresh();
+        assertEquals(Arrays.asList("20150304192951636258", "20150304200110485012"), added);
+        assertEquals(Collections.emptyList(), tracker.refresh());
+        assertEquals(2, tracker.getJobs(null, "chuck", null, null, null).size());
+    }
+
+    @Test
+    public void testMergeAndQuery() {
+        tracker.merge(listing(
+                job("20150304100000000000", "state.apply", "alice"),
+                job("20150304103000000000", "test.ping", "alice"),
+                job("20150304110000000000", "state.apply", "bob"),
+                job("20150304113000000000", "state.apply", "alice")));
+
+        Date since = tracker.getStartTime("20150304102000000000");
+        SortedMap<String, Job> jobs = tracker.getJobs("state.apply", "alice", null,
+                since, null);
+        assertEquals(Collections.singletonList("20150304113000000000"),
+                Arrays.asList(jobs.keySet().toArray()));
+        assertEquals(3, tracker.getJobs("state.apply", null, "*", null, null).size());
+        assertEquals(0, tracker.getJobs(null, "mallory", null, null, null).size());
+
+        // The oldest job has left the job cache, one job was added
+        List<String> added = tracker.merge(listing(
+                job("20150304103000000000", "test.ping", "alice"),
+                job("20150304110000000000", "state.apply", "bob"),
+                job("20150304113000000000", "state.apply", "alice"),
+                job("20150304120000000000", "state.apply", "alice")));
+        assertEquals(Collections.singletonList("20150304120000000000"), added);
+        assertEquals(4, tracker.size());
+        assertNull(tracker.getJob("20150304100000000000"));
+        assertEquals(2, tracker.getJobs("state.apply", "alice", null, null, null).size());
+        assertEquals(1, tracker.getJobs(null, null, null, null,
+                tracker.getStartTime("20150304110000000000")).size());
+    }
+
+    @Test
+    public void testMasterTimeZone() {
+        SaltStackClient client = new SaltStackClient(
+                URI.create("http://localhost:" + MOCK_HTTP_PORT));
+        client.getConfig().put(ClientConfig.MASTER_TIME_ZONE,
+                TimeZone.getTimeZone("Europe/Berlin"));
+        JobTracker berlin = new JobTracker(client);
+        berlin.merge(listing(job("20150304100000000000", "test.ping", "alice")));
+
+        // 10:00 CET
+        Date start = new Date(1425459600000L);
+        assertEquals(start, berlin.getStartTime("20150304100000000000"));
+        assertEquals(1, berlin.getJobs(null, null, null, start, null).size());
+        assertEquals(0, berlin.getJobs(null, null, null,
+                new Date(start.getTime() + 1), null).size());
+        assertNull(berlin.getStartTime("not-a-jid"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.suse.saltstack.netapi.client;
+
+import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.results.FederatedResult;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * MinionRouter unit tests.
+ */
+public class MinionRouterTest {
+
+    private static final int MOCK_HTTP_PORT = 8888;
+    private static final int SECOND_MOCK_HTTP_PORT = 8890;
+
+    @Rule
+    public WireMockRule first = new WireMockRule(MOCK_HTTP_PORT);
+
+    @Rule
+    public WireMockRule second = new WireMockRule(SECOND_MOCK_HTTP_PORT);
+
+    private URI firstUri;
+    private URI secondUri;
+    private SaltStackClient firstClient;
+    private SaltStackClient secondClient;
+    private MinionRouter router;
+
+    @Before
+    public void init() {
+        firstUri = URI.create("http://localhost:" + MOCK_HTTP_PORT);
+        secondUri = URI.create("http://localhost:" + SECOND_MOCK_HTTP_PORT);
+        firstClient = new SaltStackClient(firstUri);
+        secondClient = new SaltStackClient(secondUri);
+        router = new MinionRouter(new FederatedSaltStackClient(
+                Arrays.asList(firstClient, secondClient)));
+
+        first.stubFor(post(urlEqualTo("/minions"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"jid\": \"1\"," +
+                                " \"minions\": [\"minion-1\"]}]}")));
+        second.stubFor(post(urlEqualTo("/minions"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"jid\": \"2\"," +
+                                " \"minions\": [\"minion-2\"]}]}")));
+    }
+
+    @Test
+    public void testUnknownMinionsGoToAllMasters() throws Exception {
+        List<String> minions = Arrays.asList("minion-1", "minion-2");
+        Map<SaltStackClient, List<String>> partition = router.partition(minions);
+        assertEquals(minions, partition.get(firstClient));
+        assertEquals(minions, partition.get(secondClient));
+    }
+
+    @Test
+    public void testStartCommandLearnsOwners() throws Exception {
+        List<String> minions = Arrays.asList("minion-1", "minion-2");
+        FederatedResult<Map<URI, JobMinions>> result =
+                router.startCommand(minions, "test.ping", null, null, 5000);
+
+        assertEquals(2, result.getResult().size());
+        first.verify(postRequestedFor(urlEqualTo("/minions"))
+                .withRequestBody(containing("\"expr_form\":\"list\"")));
+        assertEquals(firstUri, router.getOwner("minion-1"));
+        assertEquals(secondUri, router.getOwner("minion-2"));
+
+        Map<SaltStackClient, List<String>> partition = router.partition(minions);
+        assertEquals(Arrays.asList("minion-1"), partition.get(firstClient));
+        assertEquals(Arrays.asList("minion-2"), partition.get(secondClient));
+    }
+
+    @Test
+    public void testMovedMinionIsForgotten() throws Exception {
+        router.learn(firstUri, Arrays.asList("minion-1", "minion-3"));
+        router.startCommand(Arrays.asList("minion-1", "minion-3"), "test.ping",
+                null, null, 5000);
+
+        assertEquals(firstUri, router.getOwner("minion-1"));
+        assertNull(router.getOwner("minion-3"));
+    }
+
+    @Test
+    public void testRunForgetsMissingMinion() throws Exception {
+        first.stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"minion-1\": true}]}")));
+        second.stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"minion-3\": true}]}")));
+        router.learn(firstUri, Arrays.asList("minion-1", "minion-3"));
+        List<String> minions = Arrays.asList("minion-1", "minion-3");
+        router.run("user", "pass", "pam", "local", minions, "test.ping", null, null,
+                5000);
+        second.verify(0, postRequestedFor(urlEqualTo("/run")));
+        assertEquals(firstUri, router.getOwner("minion-1"));
+        assertNull(router.getOwner("minion-3"));
+
+        // The minion is sent to all masters again and found on its new owner
+        Map<String, Object> result = router.run("user", "pass", "pam", "local",
+                minions, "test.ping", null, null, 5000).getResult();
+        assertEquals(true, result.get("minion-3"));
+        assertEquals(secondUri, router.getOwner("minion-3"));
+    }
+}
@@ -1,31 +1,63 @@
 package com.suse.saltstack.netapi.client;
 
+import com.google.gson.JsonSyntaxException;
+import com.suse.saltstack.netapi.cache.JobResultCache;
+import com.suse.saltstack.netapi.cache.JobResultStore;
 import com.suse.saltstack.netapi.datatypes.cherrypy.Stats;
+import com.suse.saltstack.netapi.exception.ChunkedCommandException;
+import com.suse.saltstack.netapi.exception.HttpStatusException;
 import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonEngine;
+import com.suse.saltstack.netapi.parser.JsonParser;
+import com.suse.saltstack.netapi.parser.LazyResultMap;
 import com.suse.saltstack.netapi.client.impl.JDKConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.datatypes.Job;
 import com.suse.saltstack.netapi.datatypes.JobMinions;
+import com.suse.saltstack.netapi.datatypes.LowState;
+import com.suse.saltstack.netapi.datatypes.ScheduledJob;
 import com.suse.saltstack.netapi.datatypes.Token;
+import com.suse.saltstack.netapi.datatypes.target.Glob;
+import com.suse.saltstack.netapi.datatypes.target.Grains;
+import com.suse.saltstack.netapi.datatypes.target.MinionList;
+import com.suse.saltstack.netapi.results.BatchListener;
+import com.suse.saltstack.netapi.results.Result;
+import com.suse.saltstack.netapi.results.JobResultListener;
+import com.suse.saltstack.netapi.results.StateRun;
+import com.suse.saltstack.netapi.results.StateSummary;
 import com.suse.saltstack.netapi.utils.ClientUtils;
 
+import static com.suse.saltstack.netapi.config.ClientConfig.LAZY_RESULTS;
+import static com.suse.saltstack.netapi.config.ClientConfig.PARSER_POOL;
 import static com.suse.saltstack.netapi.config.ClientConfig.SOCKET_TIMEOUT;
+import static com.suse.saltstack.netapi.config.ClientConfig.TARGET_CHUNK_SIZE;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.hamcrest.CoreMatchers.containsString;
@@ -50,6 +82,8 @@ public class SaltStackClientTest {
             SaltStackClientTest.class.getResourceAsStream("/run_request.json"));
     static final String JSON_RUN_RESPONSE = ClientUtils.streamToString(
             SaltStackClientTest.class.getResourceAsStream("/run_response.json"));
+    static final String JSON_STATE_APPLY_RESPONSE = ClientUtils.streamToString(
+            SaltStackClientTest.class.getResourceAsStream("/state_apply_response.json"));
     static final String JSON_STATS_RESPONSE = ClientUtils.streamToString(
             SaltStackClientTest.class.getResourceAsStream("/stats_response.json"));
 
@@ -61,6 +95,9 @@ public class SaltStackClientTest {
     @Rule
     public ExpectedException exception = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void init() {
         URI uri = URI.create("http://localhost:" + Integer.toString(MOCK_HTTP_PORT));
@@ -157,6 +194,22 @@ public class SaltStackClientTest {
                 .withRequestBody(equalToJson(JSON_RUN_REQUEST)));
     }
 
+    @Test
+    public void testRunRequestTyped() throws Exception {
+        stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_STATE_APPLY_RESPONSE)));
+
+        Map<String, StateRun> result = client.run("user", "pass", "pam", "local",
+                new Glob("*"), "state.apply", null, null, JsonParser.STATE_APPLY);
+
+        assertEquals(2, result.size());
+        assertEquals(4, result.get("minion1").getStates().size());
+        assertFalse(result.get("minion2").isSuccess());
+    }
+
     @Test
     public void testRunRequestAsync() throws Exception {
         stubFor(post(urlEqualTo("/run"))
@@ -287,6 +340,262 @@ public class SaltStackClientTest {
         assertEquals(jobMinions.getMinions(), Arrays.asList("myminion"));
     }
 
+    @Test
+    public void testQueryJobResults() throws Exception {
+        stubFor(get(urlMatching("/jobs/job-[0-9]"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_RUN_RESPONSE)));
+        stubFor(get(urlEqualTo("/jobs/job-broken"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_INTERNAL_ERROR)));
+
+        final Map<String, Map<String, Object>> results = new ConcurrentHashMap<>();
+        final Map<String, SaltStackException> failures = new ConcurrentHashMap<>();
+        client.getJobResults(Arrays.asList("job-1", "job-broken", "job-2", "job-3"), 2,
+                new JobResultListener() {
+                    @Override
+                    public void onResult(String jid, Map<String, Object> result) {
+                        results.put(jid, result);
+                    }
+
+                    @Override
+                    public void onFailure(String jid, SaltStackException e) {
+                        failures.put(jid, e);
+                    }
+                });
+
+        assertEquals(3, results.size());
+        assertEquals(true, results.get("job-3").get("minion-1"));
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey("job-broken"));
+    }
+
+    @Test
+    public void testQueryJobResultsMalformed() throws Exception {
+        stubFor(get(urlMatching("/jobs/job-[0-9]"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_RUN_RESPONSE)));
+        stubFor(get(urlEqualTo("/jobs/job-malformed"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"return\": [{\"minion-1\": tr")));
+
+        final Map<String, Map<String, Object>> results = new ConcurrentHashMap<>();
+        final Map<String, SaltStackException> failures = new ConcurrentHashMap<>();
+        client.getJobResults(Arrays.asList("job-1", "job-malformed", "job-2"), 2,
+                new JobResultListener() {
+                    @Override
+                    public void onResult(String jid, Map<String, Object> result) {
+                        results.put(jid, result);
+                    }
+
+                    @Override
+                    public void onFailure(String jid, SaltStackException e) {
+                        failures.put(jid, e);
+                    }
+                });
+
+        assertEquals(2, results.size());
+        assertEquals(true, results.get("job-2").get("minion-1"));
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey("job-malformed"));
+    }
+
+    @Test
+    public void testQueryJobResultCached() throws Exception {
+        stubFor(post(urlEqualTo("/minions"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_START_COMMAND_RESPONSE)));
+        stubFor(get(urlMatching("/jobs/.*"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"return\": [{\"myminion\": true}]}")));
+
+        JobResultCache cache = new JobResultCache(1 << 20, 0);
+        client.setJobResultCache(cache);
+        JobMinions job = client.startCommand("*", "test.ping", null, null);
+        String jid = job.getJid();
+
+        Map<String, Object> fetched = client.getJobResult(jid);
+        Map<String, Object> cached = client.getJobResult(jid);
+        assertEquals(true, fetched.get("myminion"));
+        assertEquals(true, cached.get("myminion"));
+        assertEquals(true, client.getJobResult(job).get("myminion"));
+        // Fetched and cached results are the same kind of map
+        assertEquals(fetched.getClass(), cached.getClass());
+
+        verify(1, getRequestedFor(urlEqualTo("/jobs/" + jid)));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testQueryJobResultLazy() throws Exception {
+        stubFor(get(urlEqualTo("/jobs/some-job-id"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_STATE_APPLY_RESPONSE)));
+
+        client.getConfig().put(LAZY_RESULTS, true);
+        Map<String, Object> result = client.getJobResult("some-job-id");
+        assertTrue(result instanceof LazyResultMap);
+        assertEquals(2, result.size());
+        assertTrue(result.get("minion2") instanceof List);
+        assertEquals(JsonParser.RETVALS.parse(new ByteArrayInputStream(
+                JSON_STATE_APPLY_RESPONSE.getBytes("UTF-8"))).getResult().get(0), result);
+    }
+
+    @Test
+    public void testResultParsersAreReused() throws Exception {
+        stubFor(get(urlEqualTo("/jobs/some-job-id"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_RUN_RESPONSE)));
+        // Identical requests are only coalesced if they use the same parser
+        final List<JsonParser<?>> parsers = new ArrayList<>();
+        final JDKConnectionFactory delegate = new JDKConnectionFactory();
+        SaltStackClient recording = new SaltStackClient(
+                URI.create("http://localhost:" + MOCK_HTTP_PORT), new ConnectionFactory() {
+                    @Override
+                    public <T> Connection<T> create(String endpoint, JsonParser<T> parser,
+                            ClientConfig config) {
+                        parsers.add(parser);
+                        return delegate.create(endpoint, parser, config);
+                    }
+                });
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        recording.getConfig().put(PARSER_POOL, pool);
+        recording.getJobResult("some-job-id");
+        recording.getJobResult("some-job-id");
+        recording.getConfig().put(LAZY_RESULTS, true);
+        recording.getJobResult("some-job-id");
+        recording.getJobResult("some-job-id");
+        pool.shutdown();
+
+        assertSame(parsers.get(0), parsers.get(1));
+        assertSame(parsers.get(2), parsers.get(3));
+        assertNotSame(parsers.get(1), parsers.get(2));
+    }
+
+    @Test
+    public void testQueryStateSummary() throws Exception {
+        stubFor(get(urlEqualTo("/jobs/some-job-id"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_STATE_APPLY_RESPONSE)));
+
+        StateSummary summary = client.getStateSummary("some-job-id");
+
+        assertEquals(4, summary.getStates());
+        assertEquals(2, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals(1, summary.getPending());
+        assertEquals(1, summary.getChanged());
+        assertEquals(1, summary.getErrors());
+        assertEquals(2125.55, summary.getDuration(), 1e-9);
+        assertEquals(2, summary.getFailedMinionCount());
+
+        StateSummary minion = summary.getMinions().get("minion1");
+        assertEquals(4, minion.getStates());
+        assertFalse(minion.isSuccess());
+        assertEquals(1, summary.getMinions().get("minion2").getErrors());
+    }
+
+    @Test
+    public void testQueryJobResultStored() throws Exception {
+        stubFor(post(urlEqualTo("/minions"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_START_COMMAND_RESPONSE)));
+        stubFor(get(urlMatching("/jobs/.*"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"return\": [{\"myminion\": \"done\"}]}")));
+
+        File dir = folder.newFolder();
+        JobResultStore store = new JobResultStore(dir);
+        client.setJobResultStore(store);
+        JobMinions job = client.startCommand("*", "test.ping", null, null);
+        assertEquals("done", client.getJobResult(job).get("myminion"));
+        store.close();
+
+        // A new client reads the result from disk
+        store = new JobResultStore(dir);
+        SaltStackClient other = new SaltStackClient(
+                URI.create("http://localhost:" + MOCK_HTTP_PORT));
+        other.setJobResultStore(store);
+        assertEquals("done", other.getJobResult(job.getJid()).get("myminion"));
+        store.close();
+
+        verify(1, getRequestedFor(urlEqualTo("/jobs/" + job.getJid())));
+    }
+
+    @Test
+    public void testJobsFromStore() throws Exception {
+        stubFor(get(urlEqualTo("/jobs"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(ClientUtils.streamToString(
+                            getClass().getResourceAsStream("/jobs_response.json")))));
+        JobResultStore store = new JobResultStore(folder.newFolder());
+        client.setJobResultStore(store);
+        Map<String, Job> jobs = client.getJobs();
+
+        // The master is down, the stored listing is returned
+        stubFor(get(urlEqualTo("/jobs"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_UNAVAILABLE)));
+        Map<String, Job> stored = client.getJobs();
+        assertEquals(jobs.keySet(), stored.keySet());
+        assertEquals("chuck", stored.get("20150304200110485012").getUser());
+
+        // Authentication errors are not hidden by the stored listing
+        stubFor(get(urlEqualTo("/jobs"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_UNAUTHORIZED)));
+        try {
+            client.getJobs();
+            fail("Expected the request to fail");
+        } catch (HttpStatusException e) {
+            assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, e.getStatusCode());
+        }
+        store.close();
+    }
+
+    @Test
+    public void testQueryJobResultStoreBroken() throws Exception {
+        stubFor(get(urlEqualTo("/jobs/some-job-id"))
+                .willReturn(aResponse()
+                    .withStatus(HttpURLConnection.HTTP_OK)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody(JSON_RUN_RESPONSE)));
+        JobResultStore store = new JobResultStore(folder.newFolder()) {
+            @Override
+            public <T> T getJobResult(String jid, JsonParser<Result<List<T>>> parser,
+                    JsonEngine engine) {
+                throw new JsonSyntaxException("broken record");
+            }
+        };
+        client.setJobResultStore(store);
+
+        assertEquals(true, client.getJobResult("some-job-id").get("minion-1"));
+        store.close();
+    }
+
     @Test
     public void testQueryJobResult() throws Exception {
         stubFor(get(urlEqualTo("/jobs/some-job-id"))
@@ -363,4 +672,232 @@ public class SaltStackClientTest {
                 .withHeader("Accept", equalTo("application/json"))
                 .withRequestBody(equalTo("")));
     }
+
+    @Test
+    public void testRunWithTarget() throws Exception {
+        stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_RUN_RESPONSE)));
+
+        client.run("user", "pass", "pam", "local", new Grains("os", "SUSE"),
+                "test.ping", null, null);
+
+        verify(1, postRequestedFor(urlEqualTo("/run"))
+                .withRequestBody(containing("\"tgt\":\"os:SUSE\""))
+                .withRequestBody(containing("\"expr_form\":\"grain\"")));
+    }
+
+    @Test
+    public void testRunChunkedListTarget() throws Exception {
+        stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_RUN_RESPONSE)));
+        client.getConfig().put(TARGET_CHUNK_SIZE, 2);
+
+        Map<String, Object> retvals = client.run("user", "pass", "pam", "local",
+                new MinionList("m1", "m2", "m3", "m4", "m5"), "test.ping", null, null);
+
+        assertEquals(true, retvals.get("minion-1"));
+        verify(3, postRequestedFor(urlEqualTo("/run"))
+                .withRequestBody(containing("\"expr_form\":\"list\"")));
+        verify(1, postRequestedFor(urlEqualTo("/run"))
+                .withRequestBody(containing("\"tgt\":\"m5\"")));
+    }
+
+    @Test
+    public void testStartCommandChunked() throws Exception {
+        stubFor(post(urlEqualTo("/minions")).willReturn(
+                aResponse().withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_START_COMMAND_RESPONSE)));
+        client.getConfig().put(TARGET_CHUNK_SIZE, 2);
+
+        List<JobMinions> jobs = client.startCommandChunked(
+                new MinionList("m1", "m2", "m3"), "test.ping", null, null);
+
+        assertEquals(2, jobs.size());
+        verify(1, postRequestedFor(urlEqualTo("/minions"))
+                .withRequestBody(containing("\"tgt\":\"m1,m2\"")));
+        verify(1, postRequestedFor(urlEqualTo("/minions"))
+                .withRequestBody(containing("\"tgt\":\"m3\"")));
+    }
+
+    @Test
+    public void testRunChunkedPartialFailure() throws Exception {
+        stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"m1\": true, \"m2\": true}]}")));
+        stubFor(post(urlEqualTo("/run"))
+                .withRequestBody(containing("\"tgt\":\"m3,m4\""))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_INTERNAL_ERROR)));
+        client.getConfig().put(TARGET_CHUNK_SIZE, 2);
+
+        try {
+            client.run("user", "pass", "pam", "local",
+                    new MinionList("m1", "m2", "m3", "m4", "m5"), "test.ping", null, null);
+            fail("expected ChunkedCommandException");
+        } catch (ChunkedCommandException e) {
+            assertEquals(true, e.getResult().get("m1"));
+            assertEquals(1, e.getFailures().size());
+            assertEquals("m3,m4", e.getFailures().keySet().iterator().next().getTarget());
+        }
+        verify(3, postRequestedFor(urlEqualTo("/run")));
+    }
+
+    @Test
+    public void testStartCommandChunkedPartialFailure() throws Exception {
+        stubFor(post(urlEqualTo("/minions")).willReturn(
+                aResponse().withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_START_COMMAND_RESPONSE)));
+        stubFor(post(urlEqualTo("/minions"))
+                .withRequestBody(containing("\"tgt\":\"m1,m2\""))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_INTERNAL_ERROR)));
+        client.getConfig().put(TARGET_CHUNK_SIZE, 2);
+
+        try {
+            client.startCommandChunked(new MinionList("m1", "m2", "m3"), "test.ping",
+                    null, null);
+            fail("expected ChunkedCommandException");
+        } catch (ChunkedCommandException e) {
+            assertEquals(1, e.getJobs().size());
+            assertEquals("20150211105524392307", e.getJobs().get(0).getJid());
+            assertEquals("m1,m2", e.getFailures().keySet().iterator().next().getTarget());
+        }
+    }
+
+    @Test
+    public void testRunChunkedAsyncOnSingleThread() throws Exception {
+        stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_RUN_RESPONSE)));
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            SaltStackClient singleThreaded = new SaltStackClient(
+                    URI.create("http://localhost:" + MOCK_HTTP_PORT), executor);
+            singleThreaded.getConfig().put(TARGET_CHUNK_SIZE, 1);
+
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(singleThreaded.runAsync("user", "pass", "pam", "local",
+                        new MinionList("m1", "m2", "m3"), "test.ping", null, null));
+            }
+            for (Future<Map<String, Object>> future : futures) {
+                assertEquals(true, future.get(10, TimeUnit.SECONDS).get("minion-1"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRunBatch() throws Exception {
+        stubFor(post(urlEqualTo("/run"))
+                .withRequestBody(containing("\"fun\":\"test.ping\""))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"m1\": true, \"m2\": true, " +
+                                "\"m3\": true}]}")));
+        stubFor(post(urlEqualTo("/run"))
+                .withRequestBody(containing("\"tgt\":\"m1,m2\""))
+                .withRequestBody(containing("\"fun\":\"cmd.run\""))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"m1\": \"a\", \"m2\": \"b\"}]}")));
+        stubFor(post(urlEqualTo("/run"))
+                .withRequestBody(containing("\"tgt\":\"m3\""))
+                .withRequestBody(containing("\"fun\":\"cmd.run\""))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [{\"m3\": \"c\"}]}")));
+
+        final List<Map<String, Object>> batches = new ArrayList<>();
+        int count = client.runBatch("user", "pass", "pam", new Glob("*"), "cmd.run",
+                null, null, "66%", new BatchListener() {
+                    @Override
+                    public void onBatch(Map<String, Object> results) {
+                        // The next batch is only started afterwards
+                        batches.add(results);
+                        assertEquals(batches.size(), findAll(postRequestedFor(
+                                urlEqualTo("/run")).withRequestBody(
+                                containing("cmd.run"))).size());
+                    }
+                });
+
+        assertEquals(2, count);
+        assertEquals(2, batches.size());
+        assertEquals("b", batches.get(0).get("m2"));
+        assertEquals("c", batches.get(1).get("m3"));
+        verify(3, postRequestedFor(urlEqualTo("/run"))
+                .withRequestBody(containing("\"client\":\"local\"")));
+    }
+
+    @Test
+    public void testRunBatchMinionList() throws Exception {
+        stubFor(post(urlEqualTo("/run"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_RUN_RESPONSE)));
+
+        final List<Map<String, Object>> batches = new ArrayList<>();
+        int count = client.runBatch("user", "pass", "pam",
+                new MinionList("m1", "m2", "m3", "m4", "m5"), "test.ping", null, null, "2",
+                new BatchListener() {
+                    @Override
+                    public void onBatch(Map<String, Object> results) {
+                        batches.add(results);
+                    }
+                });
+
+        assertEquals(3, count);
+        assertEquals(3, batches.size());
+        verify(3, postRequestedFor(urlEqualTo("/run")));
+        verify(1, postRequestedFor(urlEqualTo("/run"))
+                .withRequestBody(containing("\"tgt\":\"m5\"")));
+    }
+
+    @Test
+    public void testStartAsync() throws Exception {
+        stubFor(post(urlEqualTo("/"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"return\": [" +
+                                "{\"jid\": \"1\", \"minions\": [\"minion-1\"]}," +
+                                "{\"jid\": \"2\", \"tag\": \"salt/run/2\"}]}")));
+
+        Map<String, String> kwargs = new LinkedHashMap<>();
+        kwargs.put("mods", "deploy");
+        List<ScheduledJob> jobs = client.startAsync(Arrays.asList(
+                LowState.localAsync(new Glob("*"), "test.ping", null, null),
+                LowState.runnerAsync("state.orchestrate", kwargs)));
+
+        assertEquals(2, jobs.size());
+        assertEquals("1", jobs.get(0).getJid());
+        assertEquals(Arrays.asList("minion-1"), jobs.get(0).getMinions());
+        assertEquals("salt/run/2", jobs.get(1).getTag());
+        verify(1, postRequestedFor(urlEqualTo("/"))
+                .withRequestBody(containing("\"client\":\"local_async\""))
+                .withRequestBody(containing("\"client\":\"runner_async\""))
+                .withRequestBody(containing("\"mods\":\"deploy\"")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartAsyncRejectsSyncClient() throws Exception {
+        client.startAsync(new LowState("runner", "jobs.list_jobs", null, null, null));
+    }
 }
@@ -0,0 +1,254 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.Connection;
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.client.SaltStackClient;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.CircuitOpenException;
+import com.suse.saltstack.netapi.exception.HttpStatusException;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonParser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CircuitBreaker unit tests.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpenOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1.0, 1000, 60000, 1);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        // Not enough calls recorded yet
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testOpenOnSlowCallRate() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 2, 1.0, 0.5, 1000, 60000, 1);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(2000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbing() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 0.5, 1.0, 1000, 50, 2);
+        breaker.tryAcquire();
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(100);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        // Only the configured number of probes is let through
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess(10);
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbeOpensAgain() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 0.5, 1.0, 1000, 50, 1);
+        breaker.tryAcquire();
+        breaker.onFailure();
+
+        Thread.sleep(100);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testFailFastOnDeadEndpoint() throws Exception {
+        URI dead = URI.create("http://localhost:8889");
+        CircuitBreakerConnectionFactory factory = new CircuitBreakerConnectionFactory(
+                new HttpClientConnectionFactory()) {
+            @Override
+            protected CircuitBreaker newCircuitBreaker(URI uri) {
+                return new CircuitBreaker(5, 2, 0.5, 1.0, 1000, 60000, 1);
+            }
+        };
+        SaltStackClient client = new SaltStackClient(dead, factory);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.stats();
+                fail("Expected the request to fail");
+            } catch (CircuitOpenException e) {
+                fail("Circuit should not be open yet");
+            } catch (SaltStackException e) {
+                // expected
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, factory.getCircuitBreaker(dead).getState());
+
+        try {
+            client.stats();
+            fail("Expected the request to be rejected");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Creates a factory whose connections answer right away and then take a given time
+     * to read the response, or fail with a given status code.
+     */
+    private static CircuitBreakerConnectionFactory newFactory(final CircuitBreaker breaker,
+            final long readMillis, final int status) {
+        return new CircuitBreakerConnectionFactory(new ConnectionFactory() {
+            @Override
+            public <T> Connection<T> create(String endpoint, final JsonParser<T> parser,
+                    ClientConfig config) {
+                return new Connection<T>() {
+                    @Override
+                    public T getResult() throws SaltStackException {
+                        if (status != 200) {
+                            throw new HttpStatusException(status);
+                        }
+                        InputStream body = new ByteArrayInputStream(
+                                "{\"return\": \"ok\"}".getBytes(StandardCharsets.UTF_8)) {
+                            @Override
+                            public synchronized int read(byte[] b, int off, int len) {
+                                try {
+                                    Thread.sleep(readMillis);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                return super.read(b, off, len);
+                            }
+
+                            @Override
+                            public int read(byte[] b) throws IOException {
+                                return read(b, 0, b.length);
+                            }
+                        };
+                        return parser.parse(body);
+                    }
+
+                    @Override
+                    public T getResult(String data) throws SaltStackException {
+                        return getResult();
+                    }
+                };
+            }
+        }) {
+            @Override
+            protected CircuitBreaker newCircuitBreaker(URI uri) {
+                return breaker;
+            }
+        };
+    }
+
+    @Test
+    public void testOpenOnServerErrors() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(5, 2, 0.5, 1.0, 1000, 60000, 1);
+        ClientConfig config = new ClientConfig();
+        config.put(ClientConfig.URL, URI.create("http://localhost:8889"));
+
+        CircuitBreakerConnectionFactory factory = newFactory(breaker, 0, 404);
+        for (int i = 0; i < 2; i++) {
+            try {
+                factory.create("/jobs", JsonParser.STRING, config).getResult();
+                fail("Expected the request to fail");
+            } catch (HttpStatusException e) {
+                assertEquals(404, e.getStatusCode());
+            }
+        }
+        // Client errors do not count as failures of the endpoint
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        factory = newFactory(breaker, 0, 503);
+        for (int i = 0; i < 2; i++) {
+            try {
+                factory.create("/jobs", JsonParser.STRING, config).getResult();
+                fail("Expected the request to fail");
+            } catch (HttpStatusException e) {
+                assertEquals(503, e.getStatusCode());
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testParsingIsNotSlowCall() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(5, 2, 1.0, 0.5, 100, 60000, 1);
+        ClientConfig config = new ClientConfig();
+        config.put(ClientConfig.URL, URI.create("http://localhost:8889"));
+        CircuitBreakerConnectionFactory factory = newFactory(breaker, 200, 200);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("ok", factory.create("/jobs/1", JsonParser.STRING, config)
+                    .getResult().getResult());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testProbeFailingWithError() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(2, 1, 0.5, 1.0, 1000, 50, 1);
+        breaker.tryAcquire();
+        breaker.onFailure();
+        Thread.sleep(100);
+
+        CircuitBreakerConnectionFactory factory = new CircuitBreakerConnectionFactory(
+                new ConnectionFactory() {
+                    @Override
+                    public <T> Connection<T> create(String endpoint, JsonParser<T> parser,
+                            ClientConfig config) {
+                        return new Connection<T>() {
+                            @Override
+                            public T getResult() {
+                                throw new StackOverflowError();
+                            }
+
+                            @Override
+                            public T getResult(String data) {
+                                throw new StackOverflowError();
+                            }
+                        };
+                    }
+                }) {
+            @Override
+            protected CircuitBreaker newCircuitBreaker(URI uri) {
+                return breaker;
+            }
+        };
+        ClientConfig config = new ClientConfig();
+        config.put(ClientConfig.URL, URI.create("http://localhost:8889"));
+        try {
+            factory.create("/stats", JsonParser.STRING, config).getResult();
+            fail("Expected the probe to fail");
+        } catch (StackOverflowError e) {
+            // expected
+        }
+        // The probe slot was released, another probe may be sent
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+}
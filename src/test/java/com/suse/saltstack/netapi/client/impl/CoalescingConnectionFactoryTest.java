@@ -0,0 +1,123 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.Connection;
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonParser;
+import com.suse.saltstack.netapi.results.Result;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * CoalescingConnectionFactory unit tests.
+ */
+public class CoalescingConnectionFactoryTest {
+
+    /**
+     * Fake factory counting the requests and blocking GETs until released.
+     */
+    private static class BlockingFactory implements ConnectionFactory {
+
+        final AtomicInteger gets = new AtomicInteger();
+        final AtomicInteger posts = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public <T> Connection<T> create(String endpoint, JsonParser<T> parser,
+                ClientConfig config) {
+            return new Connection<T>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public T getResult() throws SaltStackException {
+                    gets.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new SaltStackException(e);
+                    }
+                    return (T) new Result<String>();
+                }
+
+                @Override
+                public T getResult(String data) {
+                    posts.incrementAndGet();
+                    return null;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testConcurrentGetsShareResult() throws Exception {
+        final BlockingFactory delegate = new BlockingFactory();
+        final CoalescingConnectionFactory factory =
+                new CoalescingConnectionFactory(delegate);
+        final ClientConfig config = new ClientConfig();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Result<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(new Callable<Result<String>>() {
+                @Override
+                public Result<String> call() throws SaltStackException {
+                    return factory.create("/jobs", JsonParser.STRING, config).getResult();
+                }
+            }));
+        }
+
+        delegate.started.await(5, TimeUnit.SECONDS);
+        // Give the other callers time to join the request in flight
+        Thread.sleep(200);
+        delegate.release.countDown();
+
+        Result<String> first = futures.get(0).get();
+        for (Future<Result<String>> future : futures) {
+            assertSame(first, future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, delegate.gets.get());
+        assertEquals(0, factory.getInFlightCount());
+    }
+
+    @Test
+    public void testPostsAreNotCoalesced() throws Exception {
+        BlockingFactory delegate = new BlockingFactory();
+        CoalescingConnectionFactory factory = new CoalescingConnectionFactory(delegate);
+        ClientConfig config = new ClientConfig();
+
+        factory.create("/run", JsonParser.STRING, config).getResult("[]");
+        factory.create("/run", JsonParser.STRING, config).getResult("[]");
+
+        assertEquals(2, delegate.posts.get());
+    }
+
+    @Test
+    public void testSequentialGetsAreSentSeparately() throws Exception {
+        BlockingFactory delegate = new BlockingFactory();
+        delegate.release.countDown();
+        CoalescingConnectionFactory factory = new CoalescingConnectionFactory(delegate);
+        ClientConfig config = new ClientConfig();
+
+        factory.create("/jobs", JsonParser.STRING, config).getResult();
+        factory.create("/jobs", JsonParser.STRING, config).getResult();
+
+        assertEquals(2, delegate.gets.get());
+    }
+}
@@ -0,0 +1,199 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.Connection;
+import com.suse.saltstack.netapi.client.ConnectionFactory;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.exception.HttpStatusException;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.parser.JsonParser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ConcurrencyLimiter unit tests.
+ */
+public class ConcurrencyLimiterTest {
+
+    /**
+     * Fake factory whose connections fail with a given throwable.
+     */
+    private static class FailingFactory implements ConnectionFactory {
+
+        private final Throwable failure;
+
+        FailingFactory(Throwable failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public <T> Connection<T> create(String endpoint, JsonParser<T> parser,
+                ClientConfig config) {
+            return new Connection<T>() {
+                @Override
+                public T getResult() throws SaltStackException {
+                    return fail();
+                }
+
+                @Override
+                public T getResult(String data) throws SaltStackException {
+                    return fail();
+                }
+
+                private T fail() throws SaltStackException {
+                    if (failure instanceof SaltStackException) {
+                        throw (SaltStackException) failure;
+                    }
+                    throw (Error) failure;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testRejectWhenLimitReached() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 0, 0.5, 2.0);
+        limiter.acquire();
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            fail("Expected the third request to be rejected");
+        } catch (SaltStackException e) {
+            assertEquals(1, limiter.getRejected());
+        }
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void testWaitForFreeSlot() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 5000, 0.5, 2.0);
+        limiter.acquire();
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                limiter.onIgnored();
+            }
+        }.start();
+        limiter.acquire();
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testDecreaseOnDrop() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 10, 0, 0.5, 2.0);
+        limiter.acquire();
+        limiter.onDropped();
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testIncreaseOnFastResponses() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 0, 0.5, 2.0);
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.onSuccess(1000000);
+        }
+        assertTrue(limiter.getLimit() > 2);
+    }
+
+    @Test
+    public void testDecreaseOnSlowResponses() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 10, 0, 0.5, 2.0);
+        limiter.acquire();
+        limiter.onSuccess(1000000);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.onSuccess(50000000);
+        }
+        assertTrue(limiter.getLimit() < 8);
+    }
+
+    @Test
+    public void testIgnoreSingleSlowResponse() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 10, 0, 0.5, 2.0);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+            limiter.onSuccess(1000000);
+        }
+        limiter.acquire();
+        limiter.onSuccess(50000000);
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire();
+            limiter.onSuccess(1000000);
+        }
+        assertTrue(limiter.getLimit() >= 8);
+    }
+
+    @Test
+    public void testLatencyPerEndpoint() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 10, 0, 0.5, 2.0);
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire();
+            limiter.onSuccess("/stats", 1000000);
+            limiter.acquire();
+            limiter.onSuccess("/jobs/*", 200000000);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void testLatencyKey() {
+        assertEquals("/stats", ConcurrencyLimitingConnectionFactory.getLatencyKey("/stats"));
+        assertEquals("/jobs/*",
+                ConcurrencyLimitingConnectionFactory.getLatencyKey("/jobs/20150101"));
+        assertEquals("/minions/*",
+                ConcurrencyLimitingConnectionFactory.getLatencyKey("/minions/m1?x=1"));
+        assertEquals("/jobs", ConcurrencyLimitingConnectionFactory.getLatencyKey("/jobs?a=b"));
+    }
+
+    @Test
+    public void testDecreaseOnServerError() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 10, 0, 0.5, 2.0);
+        ConcurrencyLimitingConnectionFactory factory =
+                new ConcurrencyLimitingConnectionFactory(
+                        new FailingFactory(new HttpStatusException(503)), limiter);
+        try {
+            factory.create("/jobs", JsonParser.STRING, new ClientConfig()).getResult();
+            fail("Expected the request to fail");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+        assertEquals(4, limiter.getLimit());
+
+        factory = new ConcurrencyLimitingConnectionFactory(
+                new FailingFactory(new HttpStatusException(404)), limiter);
+        try {
+            factory.create("/jobs", JsonParser.STRING, new ClientConfig()).getResult();
+            fail("Expected the request to fail");
+        } catch (HttpStatusException e) {
+            assertEquals(4, limiter.getLimit());
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testReleaseOnError() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 0, 0.5, 2.0);
+        ConcurrencyLimitingConnectionFactory factory =
+                new ConcurrencyLimitingConnectionFactory(
+                        new FailingFactory(new OutOfMemoryError()), limiter);
+        for (int i = 0; i < 2; i++) {
+            try {
+                factory.create("/run", JsonParser.STRING, new ClientConfig())
+                        .getResult("[]");
+                fail("Expected the request to fail");
+            } catch (OutOfMemoryError e) {
+                assertEquals(0, limiter.getInFlight());
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.suse.saltstack.netapi.client.impl;
+
+import com.suse.saltstack.netapi.client.SaltStackClient;
+import com.suse.saltstack.netapi.config.ClientConfig;
+import com.suse.saltstack.netapi.datatypes.cherrypy.Stats;
+import com.suse.saltstack.netapi.exception.SaltStackException;
+import com.suse.saltstack.netapi.utils.ClientUtils;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Arrays;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * LoadBalancingConnectionFactory unit tests.
+ */
+public class LoadBalancingConnectionFactoryTest {
+
+    private static final int MOCK_HTTP_PORT = 8888;
+    private static final int DEAD_HTTP_PORT = 8889;
+
+    static final String JSON_STATS_RESPONSE = ClientUtils.streamToString(
+            LoadBalancingConnectionFactoryTest.class
+            .getResourceAsStream("/stats_response.json"));
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(MOCK_HTTP_PORT);
+
+    private URI live;
+    private URI dead;
+
+    @Before
+    public void init() {
+        live = URI.create("http://localhost:" + MOCK_HTTP_PORT);
+        dead = URI.create("http://localhost:" + DEAD_HTTP_PORT);
+        stubFor(get(urlEqualTo("/stats"))
+                .willReturn(aResponse()
+                        .withStatus(HttpURLConnection.HTTP_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(JSON_STATS_RESPONSE)));
+    }
+
+    @Test
+    public void testGetFailsOverToLiveEndpoint() throws Exception {
+        LoadBalancingConnectionFactory factory = new LoadBalancingConnectionFactory(
+                Arrays.asList(dead, live), new HttpClientConnectionFactory(), 2, 60000);
+        SaltStackClient client = new SaltStackClient(live, factory);
+
+        for (int i = 0; i < 10; i++) {
+            Stats stats = client.stats();
+            assertNotNull(stats);
+        }
+        verify(10, getRequestedFor(urlEqualTo("/stats")));
+
+        ApiEndpoint deadEndpoint = factory.getEndpoints().get(0);
+        assertFalse(deadEndpoint.isAvailable(System.currentTimeMillis()));
+        assertEquals(0, deadEndpoint.getOutstanding());
+    }
+
+    @Test
+    public void testAllEndpointsFailing() throws Exception {
+        LoadBalancingConnectionFactory factory = new LoadBalancingConnectionFactory(
+                Arrays.asList(dead), new HttpClientConnectionFactory());
+        SaltStackClient client = new SaltStackClient(dead, factory);
+        try {
+            client.stats();
+            fail("Expected the request to fail");
+        } catch (SaltStackException e) {
+            assertEquals(1, factory.getEndpoints().get(0).getConsecutiveFailures());
+        }
+    }
+
+    @Test
+    public void testStatsSamplerUpdatesLoad() throws Exception {
+        LoadBalancingConnectionFactory factory = new LoadBalancingConnectionFactory(
+                Arrays.asList(live, dead), new HttpClientConnectionFactory());
+        StatsSampler sampler = new StatsSampler(factory,
+                new HttpClientConnectionFactory(), new ClientConfig(), 60000);
+        sampler.sample();
+
+        long now = System.currentTimeMillis();
+        // The mocked server reports a queue of 5 and no busy threads
+        assertEquals(5, factory.getEndpoints().get(0).getLoadScore(now));
+        assertEquals(0, factory.getEndpoints().get(1).getLoadScore(now));
+        assertEquals(0, factory.getEndpoints().get(0).getLoadScore(now + 180000));
+    }
+}
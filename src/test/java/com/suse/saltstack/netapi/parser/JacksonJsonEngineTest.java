@@ -0,0 +1,91 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.JsonSyntaxException;
+import com.suse.saltstack.netapi.datatypes.Job;
+import com.suse.saltstack.netapi.datatypes.Token;
+import com.suse.saltstack.netapi.datatypes.cherrypy.Stats;
+import com.suse.saltstack.netapi.results.Result;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests comparing the results of the Jackson engine with the default engine.
+ */
+public class JacksonJsonEngineTest {
+
+    private final JsonEngine gson = new GsonJsonEngine();
+    private final JsonEngine jackson = new JacksonJsonEngine();
+
+    private InputStream resource(String name) {
+        return getClass().getResourceAsStream(name);
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes());
+    }
+
+    @Test
+    public void testRetvals() {
+        StringBuilder json = new StringBuilder("{\"return\": [{");
+        for (int i = 0; i < 500; i++) {
+            json.append(i > 0 ? "," : "").append("\"minion-").append(i).append("\": {")
+                    .append("\"pkg_|-vim_|-vim_|-installed\": {\"result\": true, ")
+                    .append("\"changes\": {}, \"duration\": ").append(i * 1.5)
+                    .append(", \"comment\": \"Package vim is \\\"installed\\\" \\u00e9\", ")
+                    .append("\"__run_num__\": ").append(i).append(", \"pid\": null, ")
+                    .append("\"list\": [1, \"two\", 3.5e2, false, NaN]}}");
+        }
+        json.append("}]}");
+
+        Result<List<Map<String, Object>>> expected = JsonParser.RETVALS.parse(
+                stream(json.toString()), gson);
+        Result<List<Map<String, Object>>> actual = JsonParser.RETVALS.parse(
+                stream(json.toString()), jackson);
+        assertEquals(500, actual.getResult().get(0).size());
+        assertEquals(expected.getResult().toString(), actual.getResult().toString());
+    }
+
+    @Test
+    public void testDatatypes() {
+        Result<List<Token>> token = JsonParser.TOKEN.parse(
+                resource("/login_response.json"), jackson);
+        assertEquals(JsonParser.TOKEN.parse(resource("/login_response.json"))
+                .getResult().get(0).getExpire(), token.getResult().get(0).getExpire());
+
+        Job job = JsonParser.JOBS.parse(resource("/jobs_response_kwargs.json"), jackson)
+                .getResult().get(0).get("20150306023815935637");
+        Job expectedJob = JsonParser.JOBS.parse(resource("/jobs_response_kwargs.json"))
+                .getResult().get(0).get("20150306023815935637");
+        assertEquals(expectedJob.getArguments().toString(), job.getArguments().toString());
+
+        Stats stats = JsonParser.STATS.parse(resource("/stats_response.json"), jackson);
+        Stats expectedStats = JsonParser.STATS.parse(resource("/stats_response.json"));
+        assertEquals(expectedStats.getHttpServer().getQueue(),
+                stats.getHttpServer().getQueue());
+        assertEquals(expectedStats.getApplications().getStartTime(),
+                stats.getApplications().getStartTime());
+        assertNull(stats.getApplications().getRequests().get("140691829147392")
+                .getBytesRead());
+    }
+
+    @Test
+    public void testMalformed() {
+        for (JsonEngine engine : new JsonEngine[] {gson, jackson}) {
+            try {
+                JsonParser.RETVALS.parse(stream("{\"return\": [{\"a\": }]}"), engine);
+                throw new AssertionError("expected a syntax error");
+            } catch (JsonSyntaxException e) {
+                assertTrue(e.getMessage() != null);
+            }
+        }
+    }
+}
@@ -1,21 +1,44 @@
 package com.suse.saltstack.netapi.parser;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
 import com.suse.saltstack.netapi.datatypes.cherrypy.Arguments;
 import com.suse.saltstack.netapi.datatypes.Job;
 import com.suse.saltstack.netapi.datatypes.JobMinions;
 import com.suse.saltstack.netapi.datatypes.cherrypy.*;
+import com.suse.saltstack.netapi.results.JobListener;
+import com.suse.saltstack.netapi.results.PingResult;
 import com.suse.saltstack.netapi.results.Result;
+import com.suse.saltstack.netapi.results.StateResult;
+import com.suse.saltstack.netapi.results.StateRun;
+import com.suse.saltstack.netapi.results.StateSummary;
 import com.suse.saltstack.netapi.datatypes.Token;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TimeZone;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class JsonParserTest {
 
@@ -144,6 +167,24 @@ public class JsonParserTest {
         assertEquals("*", job.getTarget());
         assertEquals("glob", job.getTargetType());
         assertEquals("chuck", job.getUser());
+        // 2015-03-04T20:01:10.485012Z
+        assertEquals(new Date(1425499270485L), job.getStartTime());
+        assertEquals(new Date(1425499270485L - 3600000),
+                job.getStartTime(TimeZone.getTimeZone("Europe/Berlin")));
+    }
+
+    @Test
+    public void testSaltStackJobsWithoutStartTime() throws Exception {
+        InputStream is = new ByteArrayInputStream(("{\"return\": [{"
+                + "\"20150304200110485012\": {\"Function\": \"test.ping\", "
+                + "\"StartTime\": \"\"}, "
+                + "\"20150304200110485013\": {\"Function\": \"test.ping\", "
+                + "\"StartTime\": \"2015, Foo 04\"}}]}").getBytes());
+        Map<String, Job> jobs = JsonParser.JOBS.parse(is).getResult().get(0);
+        assertEquals(2, jobs.size());
+        assertEquals("test.ping", jobs.get("20150304200110485012").getFunction());
+        assertNull(jobs.get("20150304200110485012").getStartTime());
+        assertNull(jobs.get("20150304200110485013").getStartTime());
     }
 
     @Test
@@ -169,4 +210,201 @@ public class JsonParserTest {
         assertEquals("glob", job.getTargetType());
         assertEquals("lucid", job.getUser());
     }
+
+    @Test
+    public void testJobStreamParser() throws Exception {
+        InputStream is = getClass().getResourceAsStream("/jobs_response.json");
+        final Map<String, Job> jobs = new LinkedHashMap<>();
+        int count = new JobStreamParser(new JobListener() {
+            @Override
+            public boolean accept(String jid) {
+                return !jid.equals("20150304192951636258");
+            }
+
+            @Override
+            public boolean onJob(String jid, Job job) {
+                jobs.put(jid, job);
+                return true;
+            }
+        }).parse(is);
+
+        assertEquals(1, count);
+        assertEquals(1, jobs.size());
+        assertEquals("test.echo", jobs.get("20150304200110485012").getFunction());
+        assertEquals("enable-autodestruction",
+                jobs.get("20150304200110485012").getArguments().getArgs().get(0));
+    }
+
+    @Test
+    public void testJobStreamParserStops() throws Exception {
+        InputStream is = getClass().getResourceAsStream("/jobs_response.json");
+        final Map<String, Job> jobs = new LinkedHashMap<>();
+        int count = new JobStreamParser(new JobListener() {
+            @Override
+            public boolean accept(String jid) {
+                return true;
+            }
+
+            @Override
+            public boolean onJob(String jid, Job job) {
+                jobs.put(jid, job);
+                return false;
+            }
+        }).parse(is);
+
+        assertEquals(1, count);
+        assertEquals("test.ping", jobs.get("20150304192951636258").getFunction());
+    }
+
+    /**
+     * Checks that a hand-written adapter read every declared field of an object parsed
+     * from a complete response and writes all of them back.
+     */
+    private static void assertAllFieldsHandled(Object parsed) throws Exception {
+        Set<String> names = new HashSet<>();
+        for (Field field : parsed.getClass().getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            assertNotNull("not read: " + field.getName(), field.get(parsed));
+            names.add(field.getAnnotation(SerializedName.class).value());
+        }
+        JsonObject written = new Gson().toJsonTree(parsed).getAsJsonObject();
+        Set<String> writtenNames = new HashSet<>();
+        for (Map.Entry<String, JsonElement> entry : written.entrySet()) {
+            writtenNames.add(entry.getKey());
+        }
+        assertEquals(names, writtenNames);
+    }
+
+    @Test
+    public void testAllFieldsHandled() throws Exception {
+        InputStream is = getClass().getResourceAsStream("/jobs_response.json");
+        Result<List<Map<String, Job>>> result = JsonParser.JOBS.parse(is);
+        assertAllFieldsHandled(result);
+        assertAllFieldsHandled(result.getResult().get(0).get("20150304200110485012"));
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        JsonParser.warmUp();
+
+        InputStream is = getClass().getResourceAsStream("/jobs_response_kwargs.json");
+        Result<List<Map<String, Job>>> result = JsonParser.JOBS.parse(is);
+        Arguments arguments = result.getResult().get(0).values().iterator().next()
+                .getArguments();
+        assertNotNull(arguments);
+    }
+
+    @Test
+    public void testCompactRetvals() throws Exception {
+        StringBuilder json = new StringBuilder("{\"return\": [{");
+        for (int i = 0; i < 20; i++) {
+            json.append(String.format("\"minion%d\": {\"result\": true, "
+                    + "\"__run_num__\": %d, \"duration\": 1.5, \"big\": 1%019d, "
+                    + "\"changes\": {}, \"list\": [1, \"a\", null]}, ", i, i, 0));
+        }
+        json.append("\"minion0\": {\"result\": false}}]}");
+        Result<List<Map<String, Object>>> result = JsonParser.COMPACT_RETVALS.parse(
+                new ByteArrayInputStream(json.toString().getBytes()));
+
+        Map<String, Object> minions = result.getResult().get(0);
+        assertTrue(minions instanceof CompactMap);
+        assertEquals(20, minions.size());
+        assertNull(minions.get("minion20"));
+        // The last of duplicate keys wins
+        assertEquals(Collections.singletonMap("result", false), minions.get("minion0"));
+
+        Map<?, ?> minion = (Map<?, ?>) minions.get("minion7");
+        assertEquals(Boolean.TRUE, minion.get("result"));
+        assertEquals(7L, minion.get("__run_num__"));
+        assertEquals(1.5, minion.get("duration"));
+        assertEquals(1e19, minion.get("big"));
+        assertEquals(Collections.emptyMap(), minion.get("changes"));
+        assertEquals(Arrays.asList(1L, "a", null), minion.get("list"));
+
+        // Keys are interned and entries keep the order of the document
+        Map<?, ?> other = (Map<?, ?>) minions.get("minion8");
+        assertSame(minion.keySet().iterator().next(), other.keySet().iterator().next());
+        assertEquals("minion1", new ArrayList<>(minions.keySet()).get(1));
+    }
+
+    @Test
+    public void testPingParser() throws Exception {
+        String json = "{\"return\": [{\"minion2\": true, \"minion1\": true, "
+                + "\"minion3\": false, \"minion4\": \"Minion did not return\"}]}";
+        Result<List<PingResult>> result = JsonParser.PING.parse(
+                new ByteArrayInputStream(json.getBytes()));
+
+        PingResult ping = result.getResult().get(0);
+        assertEquals(Arrays.asList("minion1", "minion2", "minion3", "minion4"),
+                ping.getMinions());
+        assertEquals(Arrays.asList("minion1", "minion2"), ping.getResponding());
+        assertEquals(Arrays.asList("minion3", "minion4"), ping.getNotResponding());
+        assertEquals(2, ping.getRespondingCount());
+        assertTrue(ping.isResponding("minion2"));
+        assertFalse(ping.isResponding("minion3"));
+        assertFalse(ping.isResponding("minion5"));
+    }
+
+    @Test
+    public void testStateApplyParser() throws Exception {
+        InputStream is = getClass().getResourceAsStream("/state_apply_response.json");
+        Result<List<Map<String, StateRun>>> result = JsonParser.STATE_APPLY.parse(is);
+        Map<String, StateRun> runs = result.getResult().get(0);
+
+        StateRun run = runs.get("minion1");
+        assertFalse(run.isSuccess());
+        assertTrue(run.getErrors().isEmpty());
+        assertEquals(4, run.getStates().size());
+
+        // States are sorted by their run number
+        StateResult motd = run.getStates().get(0);
+        assertEquals("file_|-motd_|-/etc/motd_|-managed", motd.getKey());
+        assertEquals("file.managed", motd.getFunction());
+        assertEquals("motd", motd.getId());
+        assertEquals("/etc/motd", motd.getName());
+        assertEquals(Boolean.TRUE, motd.getResult());
+        assertEquals(12.5, motd.getDuration(), 0);
+        assertFalse(motd.hasChanges());
+
+        StateResult vim = run.getState("pkg_|-vim_|-vim_|-installed");
+        assertEquals(1, vim.getRunNum());
+        assertEquals("editors", vim.getSls());
+        assertEquals("13:05:11.380968", vim.getStartTime());
+        assertEquals(2104.55, vim.getDuration(), 0);
+        assertTrue(vim.hasChanges());
+        assertEquals("7.4", ((Map<?, ?>) vim.getChanges().get("vim")).get("new"));
+
+        assertEquals(1, run.getFailed().size());
+        StateResult ntpd = run.getFailed().get(0);
+        assertEquals("Service ntpd is not available\nCheck the name", ntpd.getComment());
+        assertNull(run.getStates().get(3).getResult());
+
+        StateRun failed = runs.get("minion2");
+        assertFalse(failed.isSuccess());
+        assertTrue(failed.getStates().isEmpty());
+        assertEquals(1, failed.getErrors().size());
+    }
+
+    @Test
+    public void testStateSummaryParser() throws Exception {
+        String json = "{\"info\": [{\"Result\": {\"minion\": {\"return\": {}}}}], "
+                + "\"return\": [{\"minion\": {\"a_|-b_|-c_|-d\": {\"result\": true, "
+                + "\"changes\": {\"diff\": \"New file\"}, \"duration\": \"1.5 ms\"}, "
+                + "\"e_|-f_|-g_|-h\": {\"result\": false, \"changes\": {}, "
+                + "\"duration\": 2}}, \"other\": \"'state.apply' is not available.\"}]}";
+        StateSummary summary = new StateSummaryParser().parse(
+                new ByteArrayInputStream(json.getBytes()));
+
+        assertEquals(2, summary.getStates());
+        assertEquals(1, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals(1, summary.getChanged());
+        assertEquals(1, summary.getErrors());
+        assertEquals(3.5, summary.getDuration(), 0);
+        assertEquals(2, summary.getMinions().size());
+        assertEquals(1, summary.getMinions().get("other").getErrors());
+    }
 }
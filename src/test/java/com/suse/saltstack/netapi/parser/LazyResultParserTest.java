@@ -0,0 +1,99 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.JsonSyntaxException;
+import com.suse.saltstack.netapi.results.Result;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * LazyResultParser unit tests.
+ */
+public class LazyResultParserTest {
+
+    private static final String RESULT = "{\"info\": [{\"Result\": {}}], \"return\": [{"
+            + "\"minion1\": {\"pkg_|-vim_|-vim_|-installed\": {\"comment\": "
+            + "\"Installed {[\\\"vim\\\"]} \\u00e9\", \"result\": true, "
+            + "\"changes\": {\"vim\": [\"7.4\", null]}}},\n"
+            + "  \"min\\u0069on\\\"2\": [\"error\"], \"minion3\": null, "
+            + "\"minion4\": 42, \"minion5\": {\"broken\" \"value\"}}]}";
+
+    private static Map<String, Object> parse(JsonParser<Result<List<Map<String, Object>>>>
+            parser, String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return parser.parse(new ByteArrayInputStream(bytes)).getResult().get(0);
+    }
+
+    @Test
+    public void testLazy() {
+        String json = RESULT.replace("{\"broken\" \"value\"}", "true");
+        Map<String, Object> expected = parse(JsonParser.RETVALS, json);
+        Map<String, Object> result = parse(new LazyResultParser(false), json);
+        assertTrue(result instanceof LazyResultMap);
+        assertEquals(5, result.size());
+        assertTrue(result.containsKey("minion\"2"));
+        assertFalse(result.containsKey("minion6"));
+        assertNull(result.get("minion6"));
+        assertSame(result.get("minion1"), result.get("minion1"));
+        assertEquals(expected, result);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(result.keySet()));
+    }
+
+    @Test
+    public void testUtf8() {
+        // Not escaped, read as UTF-8 whatever the platform charset
+        String json = "{\"return\": [{\"min\u00efon\": \"d\u00e9j\u00e0 \u2713\"}]}";
+        Map<String, Object> expected = parse(JsonParser.RETVALS, json);
+        assertEquals("d\u00e9j\u00e0 \u2713", expected.get("min\u00efon"));
+        Map<String, Object> result = parse(new LazyResultParser(false), json);
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testLazyCompact() {
+        String json = RESULT.replace("{\"broken\" \"value\"}", "true");
+        Map<String, Object> expected = parse(JsonParser.COMPACT_RETVALS, json);
+        Map<String, Object> result = parse(new LazyResultParser(true), json);
+        assertTrue(result.get("minion1") instanceof CompactMap);
+        assertEquals(42L, result.get("minion4"));
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testMalformedMinion() {
+        Map<String, Object> result = parse(new LazyResultParser(false), RESULT);
+        assertEquals(42.0, result.get("minion4"));
+        try {
+            result.get("minion5");
+            fail("decoded malformed result");
+        } catch (JsonSyntaxException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnexpectedLayout() {
+        String json = "{\"return\": [{\"minion1\": true}, {\"minion2\": false}]}";
+        Map<String, Object> result = parse(new LazyResultParser(false), json);
+        assertFalse(result instanceof LazyResultMap);
+        assertEquals(true, result.get("minion1"));
+
+        try {
+            parse(new LazyResultParser(false), "{\"return\": [{\"minion1\": tr");
+            fail("parsed truncated response");
+        } catch (JsonSyntaxException e) {
+            // expected
+        }
+    }
+}
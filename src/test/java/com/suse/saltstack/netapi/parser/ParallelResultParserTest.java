@@ -0,0 +1,113 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.google.gson.JsonSyntaxException;
+import com.suse.saltstack.netapi.results.Result;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ParallelResultParser unit tests.
+ */
+public class ParallelResultParserTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Builds a command result of a given number of minions, with strings containing
+     * quotes, brackets and escapes that the scanner has to skip.
+     */
+    private static byte[] createResult(int minions, String minionValue) {
+        StringBuilder json = new StringBuilder("{\"info\": [{\"Result\": {}}], "
+                + "\"return\": [{");
+        for (int i = 0; i < minions; i++) {
+            if (i > 0) {
+                json.append(",\n  ");
+            }
+            json.append(String.format("\"minion\\\"%d\": {\"pkg_|-vim_|-vim_|-installed\": "
+                    + "{\"comment\": \"Installed {[\\\"vim\\\"]} \\u00e9\", \"result\": true, "
+                    + "\"duration\": %d.5, \"changes\": {\"vim\": [\"7.4\", null, NaN]}}, "
+                    + "\"retcode\": %d}", i, i, i % 3));
+        }
+        if (minionValue != null) {
+            json.append(", \"last\": ").append(minionValue);
+        }
+        json.append("}]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Object> parse(JsonParser<Result<List<Map<String, Object>>>>
+            parser, byte[] json) {
+        return parser.parse(new ByteArrayInputStream(json)).getResult().get(0);
+    }
+
+    @Test
+    public void testParallel() {
+        byte[] json = createResult(10000, "\"done\"");
+        assertTrue(json.length > 1 << 20);
+
+        Map<String, Object> expected = parse(JsonParser.RETVALS, json);
+        Map<String, Object> result = parse(new ParallelResultParser(pool, false), json);
+        assertEquals(10001, result.size());
+        assertEquals(expected, result);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(result.keySet()));
+    }
+
+    @Test
+    public void testParallelCompact() {
+        byte[] json = createResult(10000, null);
+
+        Map<String, Object> expected = parse(JsonParser.COMPACT_RETVALS, json);
+        Map<String, Object> result = parse(new ParallelResultParser(pool, true), json);
+        assertTrue(result instanceof CompactMap);
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testSmallResult() {
+        byte[] json = createResult(10, null);
+        assertEquals(parse(JsonParser.RETVALS, json),
+                parse(new ParallelResultParser(pool, false), json));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testMalformedMinion() {
+        parse(new ParallelResultParser(pool, false), createResult(10000, "{\"a\" 1}"));
+    }
+
+    @Test
+    public void testScanner() {
+        byte[] json = " {\"return\": [{\"a\": {\"b\": \"}\"}, \"c\\\"\" : [1, 2] }]} "
+                .getBytes(StandardCharsets.UTF_8);
+        ResultScanner.Entries entries = ResultScanner.scan(json, json.length);
+        assertNotNull(entries);
+        assertEquals(2, entries.size());
+        assertEquals("{\"b\": \"}\"}", new String(json, entries.getValueStart(0),
+                entries.getValueEnd(0) - entries.getValueStart(0), StandardCharsets.UTF_8));
+        assertEquals("\"c\\\"\"", new String(json, entries.getKeyStart(1),
+                entries.getValueStart(1) - entries.getKeyStart(1) - 3,
+                StandardCharsets.UTF_8));
+
+        // Results with several elements and truncated documents are not scanned
+        byte[] several = "{\"return\": [{\"a\": 1}, {\"b\": 2}]}"
+                .getBytes(StandardCharsets.UTF_8);
+        assertNull(ResultScanner.scan(several, several.length));
+        assertNull(ResultScanner.scan(json, json.length - 5));
+    }
+}
@@ -0,0 +1,123 @@
+package com.suse.saltstack.netapi.parser;
+
+import com.suse.saltstack.netapi.results.Result;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Timed harness comparing the parsers of command results and the JSON engines on a
+ * generated state.apply response. Not run as part of the tests, start it with the test
+ * classpath including jackson-core:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; \
+ *     com.suse.saltstack.netapi.parser.ResultParserBenchmark [minions] [threads]
+ * </pre>
+ * Every parser is warmed up before it is timed, the median of the timed rounds is
+ * reported.
+ */
+public class ResultParserBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 10;
+    private static final int ROUNDS = 15;
+
+    private ResultParserBenchmark() {
+    }
+
+    /**
+     * Builds a state.apply result of a given number of minions with a few states each.
+     */
+    static byte[] createResult(int minions) {
+        StringBuilder json = new StringBuilder("{\"return\": [{");
+        for (int i = 0; i < minions; i++) {
+            json.append(i > 0 ? ",\n" : "").append("\"minion-").append(i).append("\": {");
+            for (int j = 0; j < 5; j++) {
+                json.append(j > 0 ? ", " : "").append(String.format(
+                        "\"pkg_|-pkg%d_|-pkg%d_|-installed\": {\"comment\": "
+                        + "\"Package pkg%d is already installed\", \"name\": \"pkg%d\", "
+                        + "\"start_time\": \"13:05:11.380968\", \"result\": true, "
+                        + "\"duration\": %d.5, \"__run_num__\": %d, \"changes\": "
+                        + "{\"pkg%d\": {\"old\": \"1.%d\", \"new\": \"1.%d\"}}}",
+                        j, j, j, j, i % 1000, j, j, i % 7, i % 7 + 1));
+            }
+            json.append('}');
+        }
+        json.append("}]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the response repeatedly and returns the median time in milliseconds.
+     */
+    static double time(JsonParser<Result<List<Map<String, Object>>>> parser,
+            JsonEngine engine, byte[] json) {
+        int size = 0;
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            size += parse(parser, engine, json);
+        }
+        long[] nanos = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            size += parse(parser, engine, json);
+            nanos[i] = System.nanoTime() - start;
+        }
+        if (size == 0) {
+            throw new IllegalStateException("nothing parsed");
+        }
+        Arrays.sort(nanos);
+        return nanos[ROUNDS / 2] / 1e6;
+    }
+
+    private static int parse(JsonParser<Result<List<Map<String, Object>>>> parser,
+            JsonEngine engine, byte[] json) {
+        Map<String, Object> result = parser.parse(new ByteArrayInputStream(json), engine)
+                .getResult().get(0);
+        return result.size();
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args number of minions (default 10000) and threads of the parser pool
+     * (default number of processors)
+     */
+    public static void main(String[] args) {
+        int minions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        byte[] json = createResult(minions);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Map<String, JsonEngine> engines = new LinkedHashMap<>();
+        engines.put("Gson", new GsonJsonEngine());
+        engines.put("Jackson", new JacksonJsonEngine());
+
+        Map<String, JsonParser<Result<List<Map<String, Object>>>>> parsers =
+                new LinkedHashMap<>();
+        parsers.put("RETVALS", JsonParser.RETVALS);
+        parsers.put("COMPACT_RETVALS", JsonParser.COMPACT_RETVALS);
+        parsers.put("parallel", new ParallelResultParser(pool, false));
+        parsers.put("parallel compact", new ParallelResultParser(pool, true));
+
+        System.out.printf("%d minions, %.1f MB, %d threads%n", minions,
+                json.length / 1e6, threads);
+        System.out.printf("%-20s", "");
+        for (String engine : engines.keySet()) {
+            System.out.printf(" %10s", engine);
+        }
+        System.out.println();
+        for (Map.Entry<String, JsonParser<Result<List<Map<String, Object>>>>> parser
+                : parsers.entrySet()) {
+            System.out.printf("%-20s", parser.getKey());
+            for (JsonEngine engine : engines.values()) {
+                System.out.printf(" %7.1f ms", time(parser.getValue(), engine, json));
+            }
+            System.out.println();
+        }
+        pool.shutdown();
+    }
+}
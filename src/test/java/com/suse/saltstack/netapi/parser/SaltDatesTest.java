@@ -0,0 +1,112 @@
+package com.suse.saltstack.netapi.parser;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * SaltDates unit tests.
+ */
+public class SaltDatesTest {
+
+    @Test
+    public void testParseEpochMillis() {
+        assertEquals(1425497309724L, SaltDates.parseEpochMillis("1425497309.724698"));
+        assertEquals(1425497309000L, SaltDates.parseEpochMillis("1425497309"));
+        assertEquals(1425497309500L, SaltDates.parseEpochMillis("1425497309.5"));
+        assertEquals(1425497309000L, SaltDates.parseEpochMillis("1425497309."));
+        assertEquals(500L, SaltDates.parseEpochMillis(".5"));
+        assertEquals(-1500L, SaltDates.parseEpochMillis("-1.5"));
+        assertEquals(1425497309000L, SaltDates.parseEpochMillis("1.425497309E9"));
+    }
+
+    @Test
+    public void testParseEpochMillisInvalid() {
+        for (String value : new String[] {"", ".", "-", "1.2.3", "abc"}) {
+            try {
+                SaltDates.parseEpochMillis(value);
+                fail("parsed " + value);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParseJobStartTime() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy, MMM dd HH:mm:ss.SSS",
+                Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String[] values = {"2015, Mar 04 19:28:29.724", "2016, Feb 29 00:00:00.000",
+                "2000, Dec 31 23:59:59.999", "1969, Jan 01 12:00:00.001",
+                "1600, Mar 01 06:30:15.250"};
+        for (String value : values) {
+            long expected = format.parse(value).getTime();
+            assertEquals(value, expected, SaltDates.parseJobStartTime(value + "698"));
+            assertEquals(value, expected, SaltDates.parseJobStartTime(value));
+            assertEquals(value + "000", SaltDates.formatJobStartTime(expected));
+        }
+        assertEquals(1425497309000L, SaltDates.parseJobStartTime("2015, Mar 04 19:28:29"));
+        assertEquals(1425497309700L,
+                SaltDates.parseJobStartTime("2015, Mar 04 19:28:29.7"));
+    }
+
+    @Test
+    public void testParseJobStartTimeInvalid() {
+        String[] values = {"", "2015, Mar 04", "2015, Foo 04 19:28:29.724698",
+                "2015, Feb 29 19:28:29.724698", "2015, Mar 04 24:28:29.724698",
+                "2015, Mar 04 19:28:29.", "2015, Mar 04 19:28:29.72x",
+                "2015, Mar 04 19:28:29.724698x", "2015-03-04T19:28:29.724698"};
+        for (String value : values) {
+            try {
+                SaltDates.parseJobStartTime(value);
+                fail("parsed " + value);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testParseJobStartTimeInZone() {
+        TimeZone berlin = TimeZone.getTimeZone("Europe/Berlin");
+        assertEquals(1425497309724L - 3600000,
+                SaltDates.parseJobStartTime("2015, Mar 04 19:28:29.724698", berlin));
+        // Skipped by the change to daylight saving time, moved forward
+        assertEquals(SaltDates.parseJobStartTime("2015, Mar 29 01:30:00", berlin)
+                + 3600000, SaltDates.parseJobStartTime("2015, Mar 29 02:30:00", berlin));
+        // Occurs twice when daylight saving time ends, the later one is used
+        assertEquals(SaltDates.parseJobStartTime("2015, Oct 25 02:30:00") - 3600000,
+                SaltDates.parseJobStartTime("2015, Oct 25 02:30:00", berlin));
+    }
+
+    @Test
+    public void testJobId() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmssSSS");
+        for (String zone : new String[] {"UTC", "Europe/Berlin", "America/New_York"}) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            format.setTimeZone(timeZone);
+            for (String jid : new String[] {"20150304192951636258", "20151025023000000000",
+                    "20160229235959999000"}) {
+                long expected = format.parse(jid.substring(0, 17)).getTime();
+                assertEquals(zone + jid, expected, SaltDates.parseJobId(jid, timeZone));
+                assertEquals(format.format(expected) + "000",
+                        SaltDates.formatJobId(expected, timeZone));
+            }
+        }
+        for (String jid : new String[] {"", "2015030419", "20151325000000000000",
+                "2015030419295x636258"}) {
+            try {
+                SaltDates.parseJobId(jid, TimeZone.getTimeZone("UTC"));
+                fail("parsed " + jid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
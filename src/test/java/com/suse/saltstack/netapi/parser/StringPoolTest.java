@@ -0,0 +1,75 @@
+package com.suse.saltstack.netapi.parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * StringPool unit tests.
+ */
+public class StringPoolTest {
+
+    @Test
+    public void testIntern() {
+        StringPool pool = new StringPool(100);
+        assertEquals(128, pool.getCapacity());
+
+        String first = new String("__run_num__");
+        String second = new String("__run_num__");
+        assertNotSame(first, second);
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertNull(pool.intern(null));
+    }
+
+    @Test
+    public void testBounded() {
+        StringPool pool = new StringPool(4);
+        String first = new String("minion0");
+        pool.intern(first);
+        for (int i = 1; i < 1000; i++) {
+            pool.intern("minion" + i);
+        }
+        // Older strings are replaced, the pool does not grow
+        assertEquals(4, pool.getCapacity());
+        assertNotSame(first, pool.intern(new String("minion0")));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final StringPool pool = new StringPool(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int i = 0; i < 100000; i++) {
+                            String value = "state" + (i % 2000);
+                            if (!value.equals(pool.intern(value))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertEquals(Boolean.TRUE, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}